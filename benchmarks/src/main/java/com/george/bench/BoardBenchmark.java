@@ -0,0 +1,70 @@
+package com.george.bench;
+
+import com.george.board.ChessBoard;
+import com.george.board.MoveGenerator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the ChessBoard operations the game loop and analysis workers call
+ * most: legal move generation (list and buffer forms), check detection and
+ * the two board copying methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"
+    })
+    public String fen;
+
+    private ChessBoard board;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        board = ChessBoard.fromFen(fen);
+    }
+
+    @Benchmark
+    public List<int[]> getAllLegalMoves() {
+        return board.getAllLegalMoves(board.currentPlayer());
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        return board.generateLegalMoves(moves, 0);
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return board.isInCheck(board.currentPlayer());
+    }
+
+    @Benchmark
+    public int[][] getBoard() {
+        return board.getBoard();
+    }
+
+    @Benchmark
+    public int[] getBoardArray() {
+        return board.getBoardArray();
+    }
+}
@@ -0,0 +1,46 @@
+package com.george.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * A minimal stand-in for a UCI engine, used to time StockfishConnector's
+ * command/response round-trip without the cost of a real search. It answers
+ * "uci", "isready" and "go" immediately with fixed output and exits on "quit".
+ */
+public class FakeEngine {
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        PrintStream out = new PrintStream(System.out, false);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals("uci")) {
+                out.println("id name FakeEngine");
+                out.println("uciok");
+            } else if (line.equals("isready")) {
+                out.println("readyok");
+            } else if (line.startsWith("go")) {
+                out.println("info depth 1 seldepth 1 multipv 1 score cp 20 nodes 20 nps 20000 time 1 pv e2e4");
+                out.println("info depth 2 seldepth 2 multipv 1 score cp 15 nodes 60 nps 60000 time 1 pv e2e4 e7e5");
+                out.println("bestmove e2e4 ponder e7e5");
+            } else if (line.equals("quit")) {
+                break;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the command line that starts this class in a new JVM using the
+     * current JVM and class path.
+     *
+     * @return The command and its arguments.
+     */
+    public static String[] command() {
+        String java = System.getProperty("java.home") + "/bin/java";
+        return new String[]{java, "-cp", System.getProperty("java.class.path"), FakeEngine.class.getName()};
+    }
+}
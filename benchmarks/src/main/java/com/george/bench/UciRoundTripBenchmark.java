@@ -0,0 +1,61 @@
+package com.george.bench;
+
+import com.george.stockfish.StockfishConnector;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a StockfishConnector command/response round-trip over the process
+ * pipe. The engine is FakeEngine, which answers instantly, so the scores are
+ * the connector and IPC overhead alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UciRoundTripBenchmark {
+
+    private StockfishConnector connector;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        connector = new StockfishConnector(FakeEngine.command());
+        if (!connector.startEngine()) {
+            throw new IllegalStateException("Could not start the fake engine");
+        }
+        connector.sendCommand("uci");
+        connector.getResponse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connector.stopEngine();
+    }
+
+    @Benchmark
+    public String isReady() throws IOException {
+        connector.sendCommand("isready");
+        return connector.getResponse();
+    }
+
+    @Benchmark
+    public String positionAndGo() throws IOException {
+        connector.sendCommand("position startpos moves e2e4 e7e5");
+        connector.sendCommand("go movetime 1");
+        return connector.getBestMove();
+    }
+}
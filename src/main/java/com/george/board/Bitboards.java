@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Bitboards
+ *
+ * Static helpers for working with 64-bit bitboards. Square numbering matches
+ * ChessBoard: square = 8 * row + col, with row 0 being black's back rank.
+ *
+ * Attack sets for knights and kings are precomputed per square. Sliding
+ * attacks for rooks, bishops and queens come from magic bitboard tables: the
+ * relevant blockers are masked out of the occupancy, multiplied by a per-square
+ * magic number and shifted down to an index into a precomputed attack table.
+ * The magics below were found offline with a fixed-seed sparse random search
+ * (the same approach as the bundled Stockfish sources); the tables are filled
+ * once at class load, so lookups never allocate.
+ */
+package com.george.board;
+
+public final class Bitboards {
+
+    // Masks for the outer files, used to stop shifts wrapping around the board
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+
+    // Masks for single rows (row 0 is black's back rank, row 7 is white's)
+    public static final long ROW_0 = 0xFFL;
+    public static final long ROW_2 = ROW_0 << 16;
+    public static final long ROW_5 = ROW_0 << 40;
+    public static final long ROW_7 = ROW_0 << 56;
+
+    // Squares attacked by a pawn of each colour, indexed [colour][square]
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Knight and king attack sets for each square
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+
+    // Squares strictly between two aligned squares, and the full line through them
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    // Row and column steps for each sliding direction
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    // Magic bitboard data for rooks
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+        0x0A80004000801220L, 0x10C0100040002000L, 0x0100102000410009L,
+        0x0B0021000C100008L, 0x4080080080040002L, 0x0200019004080200L,
+        0x0400080A10112684L, 0x20800A4D00062080L, 0x2091800020804000L,
+        0x0044401000200040L, 0x1001002000401108L, 0x1001800801100081L,
+        0x0001000500080010L, 0x1000808002000400L, 0x0404000482100108L,
+        0x0003000182610002L, 0x0440848002C00420L, 0x2010890040010021L,
+        0x8800110020044300L, 0x0208010100201000L, 0x1222020004102008L,
+        0x0000808002000400L, 0x20040400094A9008L, 0x0000420000804401L,
+        0x0040002880004680L, 0x0000200240100040L, 0x0020008180201001L,
+        0x01080080800C1000L, 0x0104040080800800L, 0x4800020080040080L,
+        0x0002000200840108L, 0x00A1000100006082L, 0x8004400088800260L,
+        0x0100804000802008L, 0x0010008010802002L, 0x000C801000800800L,
+        0x0C51800402800800L, 0x0002800200800400L, 0x0000820804000110L,
+        0x4003808042000401L, 0x00208020C0018000L, 0x4400402010004009L,
+        0x22100400A800E000L, 0x0E020021400A0013L, 0x10A0080100110005L,
+        0x0004010002004040L, 0x0024080102040010L, 0x4154089108420014L,
+        0x0182400080002380L, 0x0000400110802100L, 0x0000100080200480L,
+        0x100A000820401200L, 0x8081004020801002L, 0x0002000408100200L,
+        0x03223A1008010C00L, 0x000000831C014200L, 0x4200208009001041L,
+        0xC001004000881021L, 0x1008200100100841L, 0x0000082240920032L,
+        0x4002000804201102L, 0xB821000804000201L, 0x4080C208102100A4L,
+        0x02020900418C0CA2L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE = new long[0x19000];
+
+    // Magic bitboard data for bishops
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+        0x40106000A1160020L, 0x0230106090808800L, 0x4010210041000800L,
+        0x02240400980C2000L, 0x1304030800402088L, 0x140A0F1008000002L,
+        0x0001043002088080L, 0x0431240044102800L, 0x0000400222021200L,
+        0x0040080880809206L, 0x0420044104250001L, 0x0008841046010A40L,
+        0x2000020210001000L, 0x4000C20190080000L, 0x0404020801041004L,
+        0x0004004048241040L, 0x8008802002104A20L, 0x08080802B0840080L,
+        0x1008082A42040020L, 0x2118010402142012L, 0x2002800400A08004L,
+        0x2108080082012020L, 0x2054038069080800L, 0x0000400202020110L,
+        0x0230404825040481L, 0x1030310108012102L, 0x8808020A11140105L,
+        0x0014040038020808L, 0x2084040018410040L, 0x8409420001C11030L,
+        0x000088904C020830L, 0x00032A0401420080L, 0xA204824014602422L,
+        0xC9021A1308E00824L, 0x0404020100420400L, 0x2800600800048820L,
+        0x00084A0020120080L, 0x00041000800C1040L, 0x2004081880004400L,
+        0x0042040031250091L, 0xC20A082008004400L, 0x1124010882122800L,
+        0x8842010101002081L, 0x4001044200808808L, 0x0000240102122400L,
+        0x3082240806020221L, 0x803010B218808040L, 0x1034A40400400020L,
+        0x4081040120690000L, 0x00420A12090C8500L, 0x0808420124090940L,
+        0x1110050042020001L, 0x0D60224099024000L, 0x0100084218820081L,
+        0x08882048088504A8L, 0x2406088F01060390L, 0x000202010C829000L,
+        0x0260010421010810L, 0x0004200A004208A0L, 0x0222000800208821L,
+        0x0083040004104421L, 0x2011808810100224L, 0x2102A02002208100L,
+        0x0002420441020602L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE = new long[0x1480];
+
+    static {
+        int[][] knightSteps = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        int[][] kingSteps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT_ATTACKS[sq] = stepAttacks(sq, knightSteps);
+            KING_ATTACKS[sq] = stepAttacks(sq, kingSteps);
+            PAWN_ATTACKS[Position.WHITE][sq] = stepAttacks(sq, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN_ATTACKS[Position.BLACK][sq] = stepAttacks(sq, new int[][]{{1, -1}, {1, 1}});
+        }
+        initMagics(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_TABLE);
+        initMagics(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_TABLE);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long bb = bit(b);
+                if ((rookAttacks(a, 0L) & bb) != 0) {
+                    BETWEEN[a][b] = rookAttacks(a, bb) & rookAttacks(b, bit(a));
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | bit(a) | bb;
+                } else if ((bishopAttacks(a, 0L) & bb) != 0) {
+                    BETWEEN[a][b] = bishopAttacks(a, bb) & bishopAttacks(b, bit(a));
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | bit(a) | bb;
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Converts a row and column to a square index.
+     *
+     * @param row The row (0-7), with row 0 being black's back rank.
+     * @param col The column (0-7), with column 0 being the a-file.
+     * @return The square index (0-63).
+     */
+    public static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    /**
+     * Returns the row of a square.
+     *
+     * @param square The square index (0-63).
+     * @return The row (0-7).
+     */
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Returns the column of a square.
+     *
+     * @param square The square index (0-63).
+     * @return The column (0-7).
+     */
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Returns a bitboard with only the given square set.
+     *
+     * @param square The square index (0-63).
+     * @return The single-bit bitboard.
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Returns the index of the lowest set bit of a non-empty bitboard.
+     *
+     * @param bitboard A non-zero bitboard.
+     * @return The square index of the lowest set bit.
+     */
+    public static int lsb(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * Returns the squares a pawn of the given colour attacks from a square.
+     *
+     * @param colour Position.WHITE or Position.BLACK.
+     * @param square The pawn's square (0-63).
+     * @return The attacked squares.
+     */
+    public static long pawnAttacks(int colour, int square) {
+        return PAWN_ATTACKS[colour][square];
+    }
+
+    /**
+     * Returns the squares a knight on the given square attacks.
+     *
+     * @param square The knight's square (0-63).
+     * @return The attacked squares.
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares a king on the given square attacks.
+     *
+     * @param square The king's square (0-63).
+     * @return The attacked squares.
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares a rook on the given square attacks. Each ray stops at
+     * (and includes) the first occupied square.
+     *
+     * @param square The rook's square (0-63).
+     * @param occupied The occupancy of the board.
+     * @return The attacked squares.
+     */
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * Returns the squares a bishop on the given square attacks. Each ray stops
+     * at (and includes) the first occupied square.
+     *
+     * @param square The bishop's square (0-63).
+     * @param occupied The occupancy of the board.
+     * @return The attacked squares.
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    /**
+     * Returns the squares a queen on the given square attacks.
+     *
+     * @param square The queen's square (0-63).
+     * @param occupied The occupancy of the board.
+     * @return The attacked squares.
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares strictly between two squares that share a row,
+     * column or diagonal.
+     *
+     * @param a The first square.
+     * @param b The second square.
+     * @return The squares between them, or 0 if they are not aligned.
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * Returns the full row, column or diagonal passing through two squares,
+     * from one board edge to the other.
+     *
+     * @param a The first square.
+     * @param b The second square.
+     * @return The line through both squares, or 0 if they are not aligned.
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    // Builds the attack set of a leaper (knight or king) from its steps
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int r = row(square) + step[0];
+            int c = col(square) + step[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                attacks |= bit(square(r, c));
+            }
+        }
+        return attacks;
+    }
+
+    // Walks each ray square by square; only used to fill the magic tables
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int r = row(square) + direction[0];
+            int c = col(square) + direction[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long b = bit(square(r, c));
+                attacks |= b;
+                if ((occupied & b) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /*
+     * Fills the attack table for every square from its magic number. The
+     * relevant-occupancy mask excludes the board edges, since a blocker on the
+     * last square of a ray never changes the attack set.
+     */
+    private static void initMagics(int[][] directions, long[] masks, long[] magics,
+            int[] shifts, int[] offsets, long[] table) {
+        int offset = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long edges = ((0xFFL | 0xFF00000000000000L) & ~(0xFFL << (row(sq) * 8)))
+                    | ((FILE_A | FILE_H) & ~(FILE_A << col(sq)));
+            masks[sq] = slidingAttacks(sq, 0L, directions) & ~edges;
+            int bits = Long.bitCount(masks[sq]);
+            shifts[sq] = 64 - bits;
+            offsets[sq] = offset;
+
+            // Enumerate every subset of the mask (Carry-Rippler trick)
+            long subset = 0L;
+            do {
+                int index = (int) ((subset * magics[sq]) >>> shifts[sq]);
+                table[offset + index] = slidingAttacks(sq, subset, directions);
+                subset = (subset - masks[sq]) & masks[sq];
+            } while (subset != 0L);
+
+            offset += 1 << bits;
+        }
+    }
+}
@@ -25,14 +25,25 @@
  * Class: ChessBoard
  *
  * This class represents a chessboard and provides methods to manage its state.
- * The chessboard is stored as an 8x8 integer array, where positive numbers represent 
+ * The position itself is held in a bitboard-based Position, while this class
+ * keeps exposing it as 8x8 integer arrays, where positive numbers represent
  * white pieces and negative numbers represent black pieces.
  *
  * Key functionalities include:
  * - Retrieving the board state as a 2D array or a 1D array.
  * - Moving pieces on the board, handling special moves such as castling.
+ * - Making and unmaking encoded moves for search, backed by an undo stack.
+ * - Loading and saving positions as FEN strings.
  * - Adding and removing pieces from specific positions on the board.
  * - Managing player turns and determining the current player.
+ *
+ * Threading: every ChessBoard owns its own Position and shares no mutable
+ * state with other instances, so any number of boards can be used at once,
+ * one per game or per worker. A single board is not thread-safe. It must be
+ * confined to one thread at a time; handing it to another thread needs a
+ * happens-before edge (for example Platform.runLater followed by waiting on a
+ * CountDownLatch, as ChessGame does). Use copy() to give another thread its
+ * own independent board instead of sharing one.
  */
 package com.george.board;
 
@@ -41,25 +52,118 @@ import java.util.List;
 
 public class ChessBoard {
 
-    // The chessboard is represented as an 8x8 2D array.
-    private static final int[][] board = new int[][]{
-        {-2, -3, -4, -5, -6, -4, -3, -2}, // Row 0: Black's major pieces
-        {-1, -1, -1, -1, -1, -1, -1, -1}, // Row 1: Black's pawns
-        {0, 0, 0, 0, 0, 0, 0, 0}, // Empty squares
-        {0, 0, 0, 0, 0, 0, 0, 0}, // Empty squares
-        {0, 0, 0, 0, 0, 0, 0, 0}, // Empty squares
-        {0, 0, 0, 0, 0, 0, 0, 0}, // Empty squares
-        {1, 1, 1, 1, 1, 1, 1, 1}, // White's pawns
-        {2, 3, 4, 5, 6, 4, 3, 2} // Row 7: White's major pieces
-    };
+    // The standard starting position in Forsyth-Edwards Notation.
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
 
     // Enum to represent the player's turn
     public enum Player {
         WHITE, BLACK
     }
 
-    // The current player (whose turn it is)
-    private static Player move = Player.WHITE;
+    // The bitboard position backing this board
+    private final Position position = new Position();
+
+    // The last evaluation reported for this board, in centipawns for White
+    private int evaluation;
+
+    /**
+     * Creates a chessboard set up in the standard starting position with
+     * White to move and all castling rights available.
+     */
+    public ChessBoard() {
+        position.loadFen(START_FEN);
+    }
+
+    /**
+     * Creates a chessboard set up from a FEN string, including the side to
+     * move, castling rights, en passant square and move counters.
+     *
+     * @param fen The position in Forsyth-Edwards Notation.
+     * @return A new board holding the position.
+     * @throws IllegalArgumentException If the FEN string is malformed.
+     */
+    public static ChessBoard fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        board.position.loadFen(fen);
+        return board;
+    }
+
+    /**
+     * Describes the current position as a FEN string.
+     *
+     * @return The position in Forsyth-Edwards Notation.
+     */
+    public String toFen() {
+        return position.toFen();
+    }
+
+    /**
+     * Creates an independent copy of this board, including the side to move,
+     * castling, en passant and move history state.
+     *
+     * @return A new board with the same position.
+     */
+    public ChessBoard copy() {
+        ChessBoard board = new ChessBoard();
+        board.position.copyFrom(position);
+        board.evaluation = evaluation;
+        return board;
+    }
+
+    /**
+     * Returns the bitboard position backing this board. The returned object is
+     * live: changes made through this board are visible through it.
+     *
+     * @return The underlying position.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the current position. It covers the
+     * pieces, the side to move, the castling rights and the en passant square,
+     * is updated incrementally as the board changes and allocates nothing, so
+     * it can be used to key caches and detect repeated positions.
+     *
+     * @return The position hash.
+     */
+    public long hash() {
+        return position.key();
+    }
+
+    /**
+     * Returns a hash of the pawns alone. Boards with the same pawns of both
+     * colours on the same squares have the same pawn hash, whatever the
+     * other pieces, so it keys caches of pawn structure evaluation.
+     *
+     * @return The pawn hash, 0 when there are no pawns.
+     */
+    public long pawnHash() {
+        return position.pawnKey();
+    }
+
+    /**
+     * Returns how far the game has moved from the opening towards the
+     * endgame, counting knights and bishops as 1, rooks as 2 and queens as 4.
+     *
+     * @return 24 for a full set of pieces, down to 0 when only kings and pawns
+     * are left.
+     */
+    public int gamePhase() {
+        return Math.min(position.phase(), PieceSquareTables.MAX_PHASE);
+    }
+
+    /**
+     * Returns the static evaluation of the board: material and tapered
+     * piece-square values, kept up to date as pieces move, so this is cheap
+     * enough to call for every position of a dataset.
+     *
+     * @return The score in centipawns from White's point of view.
+     */
+    public int staticEvaluation() {
+        return position.evaluate();
+    }
 
     /**
      * Returns a copy of the current chessboard as a 2D array.
@@ -70,9 +174,11 @@ public class ChessBoard {
      * @return A copy of the chessboard as a 2D integer array.
      */
     public int[][] getBoard() {
-        int[][] boardCopy = new int[board.length][];
-        for (int i = 0; i < board.length; i++) {
-            boardCopy[i] = board[i].clone();  // Clone each row for deep copy
+        int[][] boardCopy = new int[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                boardCopy[row][col] = pieceAt(row, col);
+            }
         }
         return boardCopy;
     }
@@ -82,69 +188,145 @@ public class ChessBoard {
      * position as the last element. This can be used for machine learning
      * models.
      *
-     * @return The board in elements 0-63 and the move score in element 64.
+     * @return The board in elements 0-63 and the evaluation from
+     * getEvaluation() in element 64.
      */
     public int[] getBoardArray() {
         int[] oneDimensionalBoard = new int[65];
-        // TODO: Put the rating of the move in element 64 (e.g., based on Stockfish evaluation)
+        oneDimensionalBoard[64] = evaluation;
 
-        for (int y = 0; y < 8; y++) {
-            for (int x = 0; x < 8; x++) {
-                oneDimensionalBoard[(8 * y) + x] = board[y][x];
-            }
+        for (int square = 0; square < 64; square++) {
+            oneDimensionalBoard[square] = position.pieceAt(square);
         }
 
         return oneDimensionalBoard;
     }
 
+    /**
+     * Records an evaluation of the current position, e.g. the score Stockfish
+     * reported for it. The value is not updated when the board changes.
+     *
+     * @param centipawns The score in centipawns from White's point of view;
+     * forced mates are beyond +/- 31000.
+     */
+    public void setEvaluation(int centipawns) {
+        this.evaluation = centipawns;
+    }
+
+    public int getEvaluation() {
+        return evaluation;
+    }
+
     /**
      * Moves a piece from one square to another on the chessboard.
      *
-     * Special moves like castling are handled separately.
+     * A king moving two squares from its starting column castles, taking the
+     * rook along, and a pawn reaching the last row becomes a queen. The castling
+     * rights, en passant square and halfmove clock are kept up to date, and
+     * the turn passes to the opponent of the piece that moved.
      *
      * @param fromRow The starting row of the piece.
      * @param fromCol The starting column of the piece.
      * @param toRow The destination row of the piece.
      * @param toCol The destination column of the piece.
+     * @throws IllegalArgumentException If a coordinate is off the board or
+     * the starting square is empty.
      */
     public void movePiece(int fromRow, int fromCol, int toRow, int toCol) {
         if (fromRow >= 0 && fromRow < 8 && fromCol >= 0 && fromCol < 8
                 && toRow >= 0 && toRow < 8 && toCol >= 0 && toCol < 8) {
 
-            int piece = board[fromRow][fromCol];
+            int from = Bitboards.square(fromRow, fromCol);
+            int to = Bitboards.square(toRow, toCol);
+            int piece = position.pieceAt(from);
             if (piece == 0) {
-                System.out.println("No piece found at the source.");
-                return;  // No piece to move
+                throw new IllegalArgumentException("No piece at row " + fromRow + ", column " + fromCol);
             }
 
+            boolean pawnMove = piece == 1 || piece == -1;
+            boolean capture = position.pieceAt(to) != 0;
+            position.updateCastlingRights(from, to);
+            position.setEpSquare(Position.NO_SQUARE);
+
             // Handle castling (king moving two squares to either side)
-            if (piece == 6 || piece == -6) {  // King
-                if (fromCol == 4 && (toCol == 6 || toCol == 2)) {
-                    if (toCol == 6) {  // Kingside castling
-                        board[fromRow][4] = 0;  // Move king
-                        board[fromRow][6] = piece;
-                        board[fromRow][7] = 0;  // Move rook
-                        board[fromRow][5] = (piece > 0) ? 2 : -2;  // Add rook
-                        System.out.println("Kingside castling executed.");
-                    } else if (toCol == 2) {  // Queenside castling
-                        board[fromRow][4] = 0;  // Move king
-                        board[fromRow][2] = piece;
-                        board[fromRow][0] = 0;  // Move rook
-                        board[fromRow][3] = (piece > 0) ? 2 : -2;  // Add rook
-                        System.out.println("Queenside castling executed.");
-                    }
-                    return;
+            if ((piece == 6 || piece == -6) && fromCol == 4 && (toCol == 6 || toCol == 2)) {
+                if (toCol == 6) {  // Kingside castling
+                    position.relocate(from, to);  // Move king
+                    position.relocate(Bitboards.square(fromRow, 7), Bitboards.square(fromRow, 5));  // Move rook
+                } else {  // Queenside castling
+                    position.relocate(from, to);  // Move king
+                    position.relocate(Bitboards.square(fromRow, 0), Bitboards.square(fromRow, 3));  // Move rook
+                }
+            } else {
+                // A pawn moving diagonally onto an empty square captures en passant
+                if (pawnMove && fromCol != toCol && !capture) {
+                    position.remove(Bitboards.square(fromRow, toCol));
+                }
+
+                // Regular move
+                position.relocate(from, to);
+
+                // A double pawn push leaves an en passant square behind it
+                if (pawnMove && Math.abs(toRow - fromRow) == 2) {
+                    position.setEpSquare(Bitboards.square((fromRow + toRow) / 2, fromCol));
+                }
+
+                // A pawn reaching the last row is promoted to a queen
+                if (pawnMove && (toRow == 0 || toRow == 7)) {
+                    position.remove(to);
+                    position.put(to, 5 * piece);
                 }
             }
 
-            // Regular move
-            board[fromRow][fromCol] = 0;  // Clear original square
-            board[toRow][toCol] = piece;  // Move piece to destination
+            position.setHalfmoveClock(pawnMove || capture ? 0 : position.halfmoveClock() + 1);
+            if (piece < 0) {
+                position.setFullmoveNumber(position.fullmoveNumber() + 1);
+            }
+            position.setSideToMove(piece > 0 ? Position.BLACK : Position.WHITE);
         } else {
-            System.out.println("Invalid move or out-of-bounds coordinates.");
+            throw new IllegalArgumentException("Move off the board: row " + fromRow + ", column " + fromCol
+                    + " to row " + toRow + ", column " + toCol);
         }
     }
 
+    /**
+     * Plays an encoded move (see Move) for the side to move. Unlike movePiece,
+     * this handles castling, en passant and promotions as a single reversible
+     * step and records the move so it can be taken back with unmakeMove. It
+     * allocates nothing.
+     *
+     * @param move A legal move, for example one produced by generateLegalMoves
+     * or parseUciMove.
+     */
+    public void makeMove(int move) {
+        position.makeMove(move);
+    }
+
+    /**
+     * Takes back the most recent move played with makeMove.
+     */
+    public void unmakeMove() {
+        position.unmakeMove();
+    }
+
+    /**
+     * Finds the legal move for the side to move that matches a move in UCI
+     * notation (e.g. "e2e4", "e1g1" or "e7e8q").
+     *
+     * @param uci The move in UCI notation.
+     * @return The encoded move, or Move.NONE if it is not a legal move.
+     */
+    public int parseUciMove(String uci) {
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int count = generateLegalMoves(buffer, 0);
+        for (int i = 0; i < count; i++) {
+            if (Move.toUci(buffer[i]).equals(uci)) {
+                return buffer[i];
+            }
+        }
+        return Move.NONE;
+    }
+
     /**
      * Removes a piece from the specified square on the chessboard.
      *
@@ -153,7 +335,7 @@ public class ChessBoard {
      */
     public void removePiece(int row, int col) {
         if (row >= 0 && row < 8 && col >= 0 && col < 8) {
-            board[row][col] = 0;  // Set the square to empty (0)
+            position.remove(Bitboards.square(row, col));  // Set the square to empty (0)
         } else {
             System.out.println("Invalid coordinates for removing piece.");
         }
@@ -169,7 +351,11 @@ public class ChessBoard {
      */
     public void addPiece(int row, int col, int piece) {
         if (row >= 0 && row < 8 && col >= 0 && col < 8) {
-            board[row][col] = piece;  // Place the piece on the board
+            int square = Bitboards.square(row, col);
+            position.remove(square);
+            if (piece != 0) {
+                position.put(square, piece);  // Place the piece on the board
+            }
         } else {
             System.out.println("Invalid coordinates for adding piece.");
         }
@@ -179,10 +365,10 @@ public class ChessBoard {
      * Switches the turn to the next player (White to Black or Black to White).
      */
     public void nextMove() {
-        if (move == Player.WHITE) {
-            move = Player.BLACK;
+        if (position.sideToMove() == Position.WHITE) {
+            position.setSideToMove(Position.BLACK);
         } else {
-            move = Player.WHITE;
+            position.setSideToMove(Position.WHITE);
         }
     }
 
@@ -192,7 +378,7 @@ public class ChessBoard {
      * @return The current player (WHITE or BLACK).
      */
     public Player currentPlayer() {
-        return move;
+        return position.sideToMove() == Position.WHITE ? Player.WHITE : Player.BLACK;
     }
 
     /**
@@ -206,7 +392,7 @@ public class ChessBoard {
 
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                int piece = board[row][col];
+                int piece = pieceAt(row, col);
 
                 // Convert piece value to a character
                 switch (piece) {
@@ -261,175 +447,60 @@ public class ChessBoard {
      * Returns all legal moves for the current player. Each move is represented
      * as an array: [fromRow, fromCol, toRow, toCol].
      *
+     * This is a thin adapter over generateLegalMoves for callers that prefer
+     * arrays. A promoting pawn move is listed once and stands for promotion
+     * to a queen, and castling is listed as the king's two-square move.
+     *
      * @return A list of arrays representing legal moves for the current player.
      */
     public List<int[]> getAllLegalMoves(Player player) {
-        List<int[]> legalMoves = new ArrayList<>();
-
-        // Iterate through each square on the board
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                int piece = board[row][col];
-
-                // Check if the piece belongs to the specified player
-                if ((player == Player.WHITE && piece > 0) || (player == Player.BLACK && piece < 0)) {
-                    // Get potential moves for the current piece
-                    List<int[]> pieceMoves = getMovesForPiece(row, col, piece);
-
-                    for (int[] move : pieceMoves) {
-                        // Simulate the move
-                        int capturedPiece = board[move[2]][move[3]];
-                        movePiece(move[0], move[1], move[2], move[3]);
-
-                        // Check if the move leaves the king in check
-                        if (!isInCheck(player)) {
-                            legalMoves.add(move);  // Only add the move if it doesn't leave the king in check
-                        }
-
-                        // Undo the move
-                        board[move[0]][move[1]] = piece;
-                        board[move[2]][move[3]] = capturedPiece;
-                    }
-                }
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int count = generateLegalMoves(player, buffer, 0);
+
+        List<int[]> legalMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int promotion = Move.promotion(move);
+            if (promotion != 0 && promotion != 5) {
+                continue;  // Under-promotions are folded into the queen promotion
             }
+            int from = Move.from(move);
+            int to = Move.to(move);
+            legalMoves.add(new int[]{Bitboards.row(from), Bitboards.col(from), Bitboards.row(to), Bitboards.col(to)});
         }
-
         return legalMoves;
     }
 
     /**
-     * Returns a list of potential moves for a given piece. This function does
-     * not check for checks or pins.
+     * Writes all legal moves for the side to move into a caller-supplied
+     * buffer, encoded as described in Move. Nothing is allocated, so callers
+     * that search can reuse one buffer and give each ply its own slice.
      *
-     * @param row The row of the piece.
-     * @param col The column of the piece.
-     * @param piece The piece to find moves for.
-     * @return A list of arrays representing potential moves for the piece.
+     * @param moves The buffer to write into; it needs MoveGenerator.MAX_MOVES
+     * free slots from start onwards.
+     * @param start The index of the first free slot in the buffer.
+     * @return The index one past the last legal move written.
      */
-    private List<int[]> getMovesForPiece(int row, int col, int piece) {
-        List<int[]> moves = new ArrayList<>();
-        boolean isWhite = piece > 0;
-
-        // Add logic for determining moves based on piece type
-        switch (Math.abs(piece)) {
-            case 1: // Pawn
-                addPawnMoves(row, col, isWhite, moves);
-                break;
-            case 2: // Rook
-                addRookMoves(row, col, isWhite, moves);
-                break;
-            case 3: // Knight
-                addKnightMoves(row, col, isWhite, moves);
-                break;
-            case 4: // Bishop
-                addBishopMoves(row, col, isWhite, moves);
-                break;
-            case 5: // Queen
-                addQueenMoves(row, col, isWhite, moves);
-                break;
-            case 6: // King
-                addKingMoves(row, col, isWhite, moves);
-                break;
-        }
-
-        return moves;
+    public int generateLegalMoves(int[] moves, int start) {
+        return generateLegalMoves(currentPlayer(), moves, start);
     }
 
-    // Helper methods for each type of piece
-    private void addPawnMoves(int row, int col, boolean isWhite, List<int[]> moves) {
-        int direction = isWhite ? -1 : 1;
-        int startRow = isWhite ? 6 : 1;
-
-        // Standard move forward
-        if (isValidMove(row + direction, col) && board[row + direction][col] == 0) {
-            moves.add(new int[]{row, col, row + direction, col});
-
-            // Double move from the starting position
-            if (row == startRow && board[row + 2 * direction][col] == 0) {
-                moves.add(new int[]{row, col, row + 2 * direction, col});
-            }
-        }
-
-        // Captures
-        if (isValidMove(row + direction, col - 1) && isOpponentPiece(row + direction, col - 1, isWhite)) {
-            moves.add(new int[]{row, col, row + direction, col - 1});
-        }
-        if (isValidMove(row + direction, col + 1) && isOpponentPiece(row + direction, col + 1, isWhite)) {
-            moves.add(new int[]{row, col, row + direction, col + 1});
-        }
-    }
-
-    private void addRookMoves(int row, int col, boolean isWhite, List<int[]> moves) {
-        addLinearMoves(row, col, isWhite, moves, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}});
-    }
-
-    private void addKnightMoves(int row, int col, boolean isWhite, List<int[]> moves) {
-        int[][] knightMoves = {
-            {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
-            {1, -2}, {1, 2}, {2, -1}, {2, 1}
-        };
-        for (int[] move : knightMoves) {
-            int newRow = row + move[0];
-            int newCol = col + move[1];
-            if (isValidMove(newRow, newCol) && !isFriendlyPiece(newRow, newCol, isWhite)) {
-                moves.add(new int[]{row, col, newRow, newCol});
-            }
-        }
-    }
-
-    private void addBishopMoves(int row, int col, boolean isWhite, List<int[]> moves) {
-        addLinearMoves(row, col, isWhite, moves, new int[][]{{1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
-    }
-
-    private void addQueenMoves(int row, int col, boolean isWhite, List<int[]> moves) {
-        addLinearMoves(row, col, isWhite, moves, new int[][]{
-            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
-            {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
-        });
-    }
-
-    private void addKingMoves(int row, int col, boolean isWhite, List<int[]> moves) {
-        int[][] kingMoves = {
-            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
-            {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
-        };
-        for (int[] move : kingMoves) {
-            int newRow = row + move[0];
-            int newCol = col + move[1];
-            if (isValidMove(newRow, newCol) && !isFriendlyPiece(newRow, newCol, isWhite)) {
-                moves.add(new int[]{row, col, newRow, newCol});
-            }
-        }
-    }
-
-    // Helper methods
-    private void addLinearMoves(int row, int col, boolean isWhite, List<int[]> moves, int[][] directions) {
-        for (int[] direction : directions) {
-            int newRow = row + direction[0];
-            int newCol = col + direction[1];
-            while (isValidMove(newRow, newCol) && !isFriendlyPiece(newRow, newCol, isWhite)) {
-                moves.add(new int[]{row, col, newRow, newCol});
-                if (board[newRow][newCol] != 0) { // Stop at the first opponent piece
-                    break;
-                }
-                newRow += direction[0];
-                newCol += direction[1];
-            }
-        }
-    }
-
-    private boolean isValidMove(int row, int col) {
-        return row >= 0 && row < 8 && col >= 0 && col < 8;
-    }
-
-    private boolean isFriendlyPiece(int row, int col, boolean isWhite) {
-        int piece = board[row][col];
-        return (isWhite && piece > 0) || (!isWhite && piece < 0);
+    /**
+     * Writes all legal moves for the given player into a caller-supplied
+     * buffer, encoded as described in Move.
+     *
+     * @param player The player to generate moves for.
+     * @param moves The buffer to write into.
+     * @param start The index of the first free slot in the buffer.
+     * @return The index one past the last legal move written.
+     */
+    public int generateLegalMoves(Player player, int[] moves, int start) {
+        int colour = player == Player.WHITE ? Position.WHITE : Position.BLACK;
+        return MoveGenerator.generateLegal(position, colour, moves, start);
     }
 
-    private boolean isOpponentPiece(int row, int col, boolean isWhite) {
-        int piece = board[row][col];
-        return (isWhite && piece < 0) || (!isWhite && piece > 0);
+    private int pieceAt(int row, int col) {
+        return position.pieceAt(Bitboards.square(row, col));
     }
 
     public void printBoardWithIndices() {
@@ -437,7 +508,7 @@ public class ChessBoard {
         for (int row = 0; row < 8; row++) {
             System.out.print(row + " ");  // Row index
             for (int col = 0; col < 8; col++) {
-                int piece = board[row][col];
+                int piece = pieceAt(row, col);
                 char displayChar;
                 displayChar = switch (piece) {
                     case -1 ->
@@ -479,44 +550,28 @@ public class ChessBoard {
         return "" + file + rank;
     }
 
-    private boolean checkingForCheck = false;
-
+    /**
+     * Determines whether the given player's king is currently attacked.
+     *
+     * @param player The player whose king is tested.
+     * @return True if the king is in check, false otherwise (including when
+     * the player has no king on the board).
+     */
     public boolean isInCheck(Player player) {
-        if (checkingForCheck) {
-            return false; // Prevent further recursion if already checking for check
-        }
-
-        checkingForCheck = true; // Set the flag to indicate check detection is in progress
-
-        // Find the king's position
-        int kingRow = -1, kingCol = -1;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                int piece = board[row][col];
-                if ((player == Player.WHITE && piece == 6) || (player == Player.BLACK && piece == -6)) {
-                    kingRow = row;
-                    kingCol = col;
-                    break;
-                }
-            }
-            if (kingRow != -1) {
-                break;  // Exit loop once the king is found
-            }
-        }
-
-        // Check if the king is attacked by any opponent piece
-        boolean inCheck = false;
-        List<int[]> opponentMoves = getAllLegalMoves(player == Player.WHITE ? 
-                Player.BLACK : Player.WHITE);
-        for (int[] move : opponentMoves) {
-            if (move[2] == kingRow && move[3] == kingCol) {
-                inCheck = true;  // The king is in check
-                break;
-            }
-        }
+        return position.isInCheck(player == Player.WHITE ? Position.WHITE : Position.BLACK);
+    }
 
-        checkingForCheck = false; // Reset the flag after check detection
-        return inCheck;
+    /**
+     * Determines whether any piece of the given player attacks a square.
+     *
+     * @param row The row of the square.
+     * @param col The column of the square.
+     * @param byPlayer The attacking player.
+     * @return True if the square is attacked by that player.
+     */
+    public boolean isSquareAttacked(int row, int col, Player byPlayer) {
+        int colour = byPlayer == Player.WHITE ? Position.WHITE : Position.BLACK;
+        return position.isSquareAttacked(Bitboards.square(row, col), colour);
     }
 
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Move
+ *
+ * Static helpers for moves packed into a single int, so move lists can be kept
+ * in plain int[] buffers without allocating an object per move.
+ *
+ * Layout (least significant bit first):
+ * - bits 0-5:   source square (0-63)
+ * - bits 6-11:  destination square (0-63)
+ * - bits 12-14: promotion piece type (0 for none, otherwise 2-5 as in ChessBoard)
+ * - bits 15-18: flags (capture, double pawn push, en passant, castling)
+ *
+ * The value 0 (a8 to a8) is never a legal move and is used as NONE.
+ */
+package com.george.board;
+
+public final class Move {
+
+    // Marker for "no move"
+    public static final int NONE = 0;
+
+    // Flags stored in bits 15-18
+    public static final int CAPTURE = 1;
+    public static final int DOUBLE_PUSH = 2;
+    public static final int EN_PASSANT = 4;
+    public static final int CASTLING = 8;
+
+    private Move() {
+    }
+
+    /**
+     * Packs a quiet, non-promoting move.
+     *
+     * @param from The source square.
+     * @param to The destination square.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    /**
+     * Packs a move with a promotion piece and flags.
+     *
+     * @param from The source square.
+     * @param to The destination square.
+     * @param promotion The promotion piece type (2-5), or 0 for none.
+     * @param flags Any combination of CAPTURE, DOUBLE_PUSH, EN_PASSANT and
+     * CASTLING.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | (flags << 15);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int flags(int move) {
+        return move >>> 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (flags(move) & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (flags(move) & CASTLING) != 0;
+    }
+
+    /**
+     * Returns the move in UCI notation, e.g. "e2e4" or "e7e8q".
+     *
+     * @param move The encoded move.
+     * @return The move in UCI notation.
+     */
+    public static String toUci(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        switch (promotion(move)) {
+            case 2 -> sb.append('r');
+            case 3 -> sb.append('n');
+            case 4 -> sb.append('b');
+            case 5 -> sb.append('q');
+            default -> {
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + Bitboards.col(square)));
+        sb.append((char) ('8' - Bitboards.row(square)));
+    }
+}
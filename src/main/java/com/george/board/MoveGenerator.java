@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: MoveGenerator
+ *
+ * Generates moves for a Position straight into a caller-supplied int[] buffer
+ * using the encoding in Move. Nothing is allocated while generating, so a
+ * search can keep one buffer and give each ply its own slice of it, for
+ * example starting at ply * MAX_MOVES.
+ *
+ * generatePseudoLegal follows the piece movement rules only. generateLegal
+ * additionally works out the pieces giving check and the pieces pinned to the
+ * king, so every candidate move can be accepted or rejected with a few mask
+ * tests instead of playing it out and searching for attacks on the king.
+ */
+package com.george.board;
+
+public final class MoveGenerator {
+
+    // Upper bound on the number of moves in any chess position
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes all pseudo-legal moves of one colour into the buffer.
+     *
+     * @param position The position to generate moves for.
+     * @param colour Position.WHITE or Position.BLACK.
+     * @param moves The buffer to write into.
+     * @param start The index of the first free slot in the buffer.
+     * @return The index one past the last move written.
+     */
+    public static int generatePseudoLegal(Position position, int colour, int[] moves, int start) {
+        int sign = colour == Position.WHITE ? 1 : -1;
+        long own = position.colour(colour);
+        long enemies = position.colour(colour ^ 1);
+        long targets = ~own;
+        long occupied = position.occupied();
+        int end = start;
+
+        end = generatePawnMoves(position, colour, moves, end);
+
+        long knights = position.pieces(3 * sign);
+        while (knights != 0L) {
+            int from = Bitboards.lsb(knights);
+            knights &= knights - 1;
+            end = addMoves(from, Bitboards.knightAttacks(from) & targets, enemies, moves, end);
+        }
+
+        long bishops = position.pieces(4 * sign);
+        while (bishops != 0L) {
+            int from = Bitboards.lsb(bishops);
+            bishops &= bishops - 1;
+            end = addMoves(from, Bitboards.bishopAttacks(from, occupied) & targets, enemies, moves, end);
+        }
+
+        long rooks = position.pieces(2 * sign);
+        while (rooks != 0L) {
+            int from = Bitboards.lsb(rooks);
+            rooks &= rooks - 1;
+            end = addMoves(from, Bitboards.rookAttacks(from, occupied) & targets, enemies, moves, end);
+        }
+
+        long queens = position.pieces(5 * sign);
+        while (queens != 0L) {
+            int from = Bitboards.lsb(queens);
+            queens &= queens - 1;
+            end = addMoves(from, Bitboards.queenAttacks(from, occupied) & targets, enemies, moves, end);
+        }
+
+        long kings = position.pieces(6 * sign);
+        while (kings != 0L) {
+            int from = Bitboards.lsb(kings);
+            kings &= kings - 1;
+            end = addMoves(from, Bitboards.kingAttacks(from) & targets, enemies, moves, end);
+        }
+
+        return end;
+    }
+
+    /**
+     * Writes all legal moves of one colour into the buffer, including
+     * castling.
+     *
+     * @param position The position to generate moves for.
+     * @param colour Position.WHITE or Position.BLACK.
+     * @param moves The buffer to write into.
+     * @param start The index of the first free slot in the buffer.
+     * @return The index one past the last move written.
+     */
+    public static int generateLegal(Position position, int colour, int[] moves, int start) {
+        int end = generatePseudoLegal(position, colour, moves, start);
+        int king = position.kingSquare(colour);
+        if (king == Position.NO_SQUARE) {
+            return end;  // Without a king there is nothing to leave in check
+        }
+
+        int enemy = colour ^ 1;
+        int enemySign = enemy == Position.WHITE ? 1 : -1;
+        long occupied = position.occupied();
+        long own = position.colour(colour);
+        long checkers = position.attackersTo(king, enemy, occupied);
+
+        // Non-king moves must capture the checker or block its line
+        long checkMask = -1L;
+        if (checkers != 0L) {
+            int checker = Bitboards.lsb(checkers);
+            checkMask = (checkers & (checkers - 1)) != 0L ? 0L : Bitboards.between(king, checker) | checkers;
+        }
+
+        // A friendly piece alone between the king and an enemy slider is pinned
+        long enemyQueens = position.pieces(5 * enemySign);
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (position.pieces(2 * enemySign) | enemyQueens))
+                | (Bitboards.bishopAttacks(king, 0L) & (position.pieces(4 * enemySign) | enemyQueens));
+        long pinned = 0L;
+        while (snipers != 0L) {
+            int sniper = Bitboards.lsb(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(king, sniper) & occupied;
+            if (blockers != 0L && (blockers & (blockers - 1)) == 0L) {
+                pinned |= blockers & own;
+            }
+        }
+
+        int legalEnd = start;
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            int to = Move.to(move);
+            boolean legal;
+            if (from == king) {
+                // The king may not step onto an attacked square; it is taken off
+                // the board first so it cannot hide behind itself on a ray
+                legal = position.attackersTo(to, enemy, occupied ^ (1L << from)) == 0L;
+            } else if (Move.isEnPassant(move)) {
+                legal = isLegalEnPassant(position, colour, move, king);
+            } else {
+                legal = (checkMask & (1L << to)) != 0L
+                        && ((pinned & (1L << from)) == 0L || (Bitboards.line(king, from) & (1L << to)) != 0L);
+            }
+            if (legal) {
+                moves[legalEnd++] = move;
+            }
+        }
+
+        if (checkers == 0L) {
+            legalEnd = generateCastling(position, colour, king, moves, legalEnd);
+        }
+        return legalEnd;
+    }
+
+    // En passant removes two pawns from one row, so it is checked by playing it out on the occupancy
+    private static boolean isLegalEnPassant(Position position, int colour, int move, int king) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int captured = Bitboards.square(Bitboards.row(from), Bitboards.col(to));
+        long occupancy = (position.occupied() ^ (1L << from) ^ (1L << captured)) | (1L << to);
+        long attackers = position.attackersTo(king, colour ^ 1, occupancy) & ~(1L << captured);
+        return attackers == 0L;
+    }
+
+    // Castling needs the rights, empty squares between king and rook, and a safe path for the king
+    private static int generateCastling(Position position, int colour, int king, int[] moves, int end) {
+        int row = colour == Position.WHITE ? 7 : 0;
+        int kingPiece = colour == Position.WHITE ? 6 : -6;
+        int rookPiece = colour == Position.WHITE ? 2 : -2;
+        int rights = position.castlingRights();
+        int kingside = colour == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = colour == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        int home = Bitboards.square(row, 4);
+        if (king != home || position.pieceAt(home) != kingPiece) {
+            return end;
+        }
+
+        int enemy = colour ^ 1;
+        long occupied = position.occupied();
+        if ((rights & kingside) != 0 && position.pieceAt(Bitboards.square(row, 7)) == rookPiece
+                && (Bitboards.between(home, Bitboards.square(row, 7)) & occupied) == 0L
+                && !position.isSquareAttacked(Bitboards.square(row, 5), enemy)
+                && !position.isSquareAttacked(Bitboards.square(row, 6), enemy)) {
+            moves[end++] = Move.of(home, Bitboards.square(row, 6), 0, Move.CASTLING);
+        }
+        if ((rights & queenside) != 0 && position.pieceAt(Bitboards.square(row, 0)) == rookPiece
+                && (Bitboards.between(home, Bitboards.square(row, 0)) & occupied) == 0L
+                && !position.isSquareAttacked(Bitboards.square(row, 3), enemy)
+                && !position.isSquareAttacked(Bitboards.square(row, 2), enemy)) {
+            moves[end++] = Move.of(home, Bitboards.square(row, 2), 0, Move.CASTLING);
+        }
+        return end;
+    }
+
+    private static int generatePawnMoves(Position position, int colour, int[] moves, int end) {
+        boolean white = colour == Position.WHITE;
+        long pawns = position.pieces(white ? 1 : -1);
+        long enemies = position.colour(colour ^ 1);
+        long empty = ~position.occupied();
+
+        // White pawns move towards row 0 (lower squares), black towards row 7
+        int forward = white ? -8 : 8;
+        long single = (white ? pawns >>> 8 : pawns << 8) & empty;
+        long twice = single & (white ? Bitboards.ROW_5 : Bitboards.ROW_2);
+        long doubled = (white ? twice >>> 8 : twice << 8) & empty;
+        long left = (white ? (pawns & ~Bitboards.FILE_A) >>> 9 : (pawns & ~Bitboards.FILE_A) << 7) & enemies;
+        long right = (white ? (pawns & ~Bitboards.FILE_H) >>> 7 : (pawns & ~Bitboards.FILE_H) << 9) & enemies;
+        int leftStep = white ? -9 : 7;
+        int rightStep = white ? -7 : 9;
+
+        end = addPawnMoves(single, forward, 0, moves, end);
+        while (doubled != 0L) {
+            int to = Bitboards.lsb(doubled);
+            doubled &= doubled - 1;
+            moves[end++] = Move.of(to - 2 * forward, to, 0, Move.DOUBLE_PUSH);
+        }
+        end = addPawnMoves(left, leftStep, Move.CAPTURE, moves, end);
+        end = addPawnMoves(right, rightStep, Move.CAPTURE, moves, end);
+
+        // En passant, only when the square lies on the row this side captures onto
+        int ep = position.epSquare();
+        if (ep != Position.NO_SQUARE && Bitboards.row(ep) == (white ? 2 : 5)) {
+            long attackers = Bitboards.pawnAttacks(colour ^ 1, ep) & pawns;
+            while (attackers != 0L) {
+                int from = Bitboards.lsb(attackers);
+                attackers &= attackers - 1;
+                moves[end++] = Move.of(from, ep, 0, Move.CAPTURE | Move.EN_PASSANT);
+            }
+        }
+        return end;
+    }
+
+    // Adds pawn moves whose destinations are in the bitboard, splitting promotions
+    private static int addPawnMoves(long destinations, int step, int flags, int[] moves, int end) {
+        while (destinations != 0L) {
+            int to = Bitboards.lsb(destinations);
+            destinations &= destinations - 1;
+            int from = to - step;
+            int row = Bitboards.row(to);
+            if (row == 0 || row == 7) {
+                moves[end++] = Move.of(from, to, 5, flags);
+                moves[end++] = Move.of(from, to, 2, flags);
+                moves[end++] = Move.of(from, to, 4, flags);
+                moves[end++] = Move.of(from, to, 3, flags);
+            } else {
+                moves[end++] = Move.of(from, to, 0, flags);
+            }
+        }
+        return end;
+    }
+
+    // Adds a move from one square to each destination in the bitboard
+    private static int addMoves(int from, long destinations, long enemies, int[] moves, int end) {
+        while (destinations != 0L) {
+            int to = Bitboards.lsb(destinations);
+            destinations &= destinations - 1;
+            moves[end++] = Move.of(from, to, 0, (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0);
+        }
+        return end;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Perft
+ *
+ * Counts the leaf nodes of the legal move tree of a ChessBoard to a fixed
+ * depth (perft). Comparing the counts with published reference values is the
+ * standard way to validate a move generator, and nodes per second is a useful
+ * headline figure for its speed.
+ *
+ * The walk uses makeMove/unmakeMove and a single move buffer sliced per ply,
+ * so it allocates nothing after construction. At the last ply the legal moves
+ * are counted rather than played (bulk counting).
+ */
+package com.george.board;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Perft {
+
+    // Deepest perft this class supports
+    public static final int MAX_DEPTH = 32;
+
+    private final ChessBoard board;
+    private final int[] moves = new int[MAX_DEPTH * MoveGenerator.MAX_MOVES];
+
+    /**
+     * Creates a perft counter for a board. The board is modified during a run
+     * but is always restored before a method returns.
+     *
+     * @param board The board whose side to move starts the tree.
+     */
+    public Perft(ChessBoard board) {
+        this.board = board;
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree.
+     *
+     * @param depth The depth in plies (0 counts the root itself).
+     * @return The number of leaf nodes.
+     */
+    public long perft(int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 0 and " + MAX_DEPTH);
+        }
+        return depth == 0 ? 1 : count(depth, 0);
+    }
+
+    /**
+     * Counts the leaf nodes below each legal root move, which helps to narrow
+     * down where a move generator disagrees with a reference.
+     *
+     * @param depth The depth in plies, at least 1.
+     * @return The leaf count per root move in UCI notation, in generation order.
+     */
+    public Map<String, Long> divide(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        int end = board.generateLegalMoves(moves, 0);
+        for (int i = 0; i < end; i++) {
+            board.makeMove(moves[i]);
+            result.put(Move.toUci(moves[i]), depth == 1 ? 1 : count(depth - 1, 1));
+            board.unmakeMove();
+        }
+        return result;
+    }
+
+    private long count(int depth, int ply) {
+        int start = ply * MoveGenerator.MAX_MOVES;
+        int end = board.generateLegalMoves(moves, start);
+        if (depth == 1) {
+            return end - start;
+        }
+        long nodes = 0;
+        for (int i = start; i < end; i++) {
+            board.makeMove(moves[i]);
+            nodes += count(depth - 1, ply + 1);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+}
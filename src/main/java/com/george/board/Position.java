@@ -0,0 +1,860 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Position
+ *
+ * This class holds a chess position as a set of 64-bit bitboards, one per
+ * piece type and colour, together with the colour occupancy masks, a mailbox
+ * for fast piece lookup, and the side to move, castling and en passant state.
+ *
+ * Squares are numbered 0-63 in the same order as ChessBoard rows and columns
+ * (square = 8 * row + col), so a8 is square 0 and h1 is square 63. Piece codes
+ * follow the ChessBoard convention: positive numbers are white pieces,
+ * negative numbers are black pieces (1 pawn, 2 rook, 3 knight, 4 bishop,
+ * 5 queen, 6 king).
+ *
+ * makeMove and unmakeMove apply and revert encoded moves (see Move). The state
+ * that cannot be recomputed on the way back is saved on a fixed-size undo stack
+ * allocated with the position, so making and unmaking moves allocates nothing.
+ *
+ * A 64-bit Zobrist key (see Zobrist) is kept up to date by every method that
+ * changes the position, so hash() is always current without recomputation.
+ */
+package com.george.board;
+
+public final class Position {
+
+    // Colour indices used for the occupancy masks and the side to move
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Castling right flags
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    // Marker for "no en passant square"
+    public static final int NO_SQUARE = -1;
+
+    // Number of moves the undo stack can hold
+    public static final int MAX_HISTORY = 2048;
+
+    // Castling rights that survive a move touching each square. Moving a king
+    // or rook, or capturing a rook on its home square, clears the matching rights.
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            CASTLING_MASK[sq] = ALL_CASTLING;
+        }
+        CASTLING_MASK[Bitboards.square(7, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(7, 7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(7, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(0, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(0, 7)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(0, 0)] &= ~BLACK_QUEENSIDE;
+    }
+
+    // One bitboard per piece, indexed by pieceIndex(piece)
+    private final long[] pieces = new long[12];
+
+    // Occupancy of each colour, indexed by WHITE / BLACK
+    private final long[] colours = new long[2];
+
+    // Occupancy of both colours
+    private long occupied;
+
+    // Piece code on each square (0 when empty)
+    private final int[] mailbox = new int[64];
+
+    // Square of each colour's king, tracked as kings are placed and removed
+    private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+
+    private int sideToMove = WHITE;
+    private int castlingRights;
+    private int epSquare = NO_SQUARE;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+
+    // Zobrist key of the current position
+    private long key;
+
+    // Zobrist key of the pawns alone, for caching pawn structure evaluation
+    private long pawnKey;
+
+    // Material plus piece-square values (White minus Black) and the game
+    // phase, maintained as pieces are put and removed
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+
+    // Undo stack: one packed entry per move made and not yet unmade. Bits 0-19
+    // hold the move, 20-23 the captured piece + 6, 24-27 the castling rights,
+    // 28-34 the en passant square + 1 and 35 upwards the halfmove clock.
+    private final long[] history = new long[MAX_HISTORY];
+    private final long[] historyKeys = new long[MAX_HISTORY];
+    private int historySize;
+
+    /**
+     * Maps a piece code (1..6 for white, -1..-6 for black) to its bitboard
+     * index (0..5 for white, 6..11 for black).
+     *
+     * @param piece The piece code.
+     * @return The index of the piece's bitboard.
+     */
+    public static int pieceIndex(int piece) {
+        return piece > 0 ? piece - 1 : 5 - piece;
+    }
+
+    /**
+     * Returns the colour index of a piece code.
+     *
+     * @param piece A non-zero piece code.
+     * @return WHITE for positive codes, BLACK for negative codes.
+     */
+    public static int colourOf(int piece) {
+        return piece > 0 ? WHITE : BLACK;
+    }
+
+    /**
+     * Removes every piece and resets the side to move, castling, en passant
+     * and clock state.
+     */
+    public void clear() {
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = 0L;
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            mailbox[sq] = 0;
+        }
+        colours[WHITE] = 0L;
+        colours[BLACK] = 0L;
+        occupied = 0L;
+        kingSquares[WHITE] = NO_SQUARE;
+        kingSquares[BLACK] = NO_SQUARE;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0L;
+        pawnKey = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        historySize = 0;
+    }
+
+    /**
+     * Replaces the contents of this position with the one described by a FEN
+     * string. The halfmove clock and fullmove number fields are optional and
+     * default to 0 and 1.
+     *
+     * @param fen The position in Forsyth-Edwards Notation.
+     * @throws IllegalArgumentException If the FEN string is malformed, a row
+     * does not have exactly 8 squares, or a side does not have exactly one
+     * king.
+     */
+    public void loadFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
+        }
+        clear();
+
+        int row = 0;
+        int col = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (col != 8 || row == 7) {
+                    throw new IllegalArgumentException("Each FEN row must have 8 squares: " + fen);
+                }
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 8) {
+                    throw new IllegalArgumentException("Each FEN row must have 8 squares: " + fen);
+                }
+            } else {
+                int piece = "PRNBQK".indexOf(Character.toUpperCase(c)) + 1;
+                if (piece == 0 || col > 7) {
+                    throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+                }
+                put(Bitboards.square(row, col), Character.isUpperCase(c) ? piece : -piece);
+                col++;
+            }
+        }
+        if (row != 7 || col != 8) {
+            throw new IllegalArgumentException("FEN must describe 8 rows of 8 squares: " + fen);
+        }
+        if (Long.bitCount(pieces(6)) != 1 || Long.bitCount(pieces(-6)) != 1) {
+            throw new IllegalArgumentException("FEN must have exactly one king per side: " + fen);
+        }
+
+        switch (fields[1]) {
+            case "w" -> setSideToMove(WHITE);
+            case "b" -> setSideToMove(BLACK);
+            default -> throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+        }
+
+        int rights = 0;
+        for (int i = 0; i < fields[2].length(); i++) {
+            switch (fields[2].charAt(i)) {
+                case 'K' -> rights |= WHITE_KINGSIDE;
+                case 'Q' -> rights |= WHITE_QUEENSIDE;
+                case 'k' -> rights |= BLACK_KINGSIDE;
+                case 'q' -> rights |= BLACK_QUEENSIDE;
+                case '-' -> {
+                }
+                default -> throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+            }
+        }
+        setCastlingRights(rights);
+
+        if (!fields[3].equals("-")) {
+            if (fields[3].length() != 2) {
+                throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+            }
+            int epCol = fields[3].charAt(0) - 'a';
+            int epRow = '8' - fields[3].charAt(1);
+            if (epCol < 0 || epCol > 7 || epRow < 0 || epRow > 7) {
+                throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+            }
+            setEpSquare(Bitboards.square(epRow, epCol));
+        }
+
+        try {
+            halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad move counters in FEN: " + fen, e);
+        }
+    }
+
+    /**
+     * Describes this position as a FEN string, including the castling rights,
+     * en passant square, halfmove clock and fullmove number.
+     *
+     * @return The position in Forsyth-Edwards Notation.
+     */
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = mailbox[Bitboards.square(row, col)];
+                if (piece == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = "PRNBQK".charAt(Math.abs(piece) - 1);
+                sb.append(piece > 0 ? c : Character.toLowerCase(c));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row < 7) {
+                sb.append('/');
+            }
+        }
+
+        sb.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            sb.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) {
+                sb.append('K');
+            }
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) {
+                sb.append('Q');
+            }
+            if ((castlingRights & BLACK_KINGSIDE) != 0) {
+                sb.append('k');
+            }
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) {
+                sb.append('q');
+            }
+        }
+
+        sb.append(' ');
+        if (epSquare == NO_SQUARE) {
+            sb.append('-');
+        } else {
+            sb.append((char) ('a' + Bitboards.col(epSquare))).append((char) ('8' - Bitboards.row(epSquare)));
+        }
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
+    }
+
+    /**
+     * Copies the complete state of another position into this one.
+     *
+     * @param other The position to copy.
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colours, 0, colours, 0, colours.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        occupied = other.occupied;
+        kingSquares[WHITE] = other.kingSquares[WHITE];
+        kingSquares[BLACK] = other.kingSquares[BLACK];
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        midgameScore = other.midgameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        historySize = other.historySize;
+        System.arraycopy(other.history, 0, history, 0, historySize);
+        System.arraycopy(other.historyKeys, 0, historyKeys, 0, historySize);
+    }
+
+    /**
+     * Returns the piece code on a square.
+     *
+     * @param square The square (0-63).
+     * @return The piece code, or 0 if the square is empty.
+     */
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    /**
+     * Returns the bitboard of a single piece type and colour.
+     *
+     * @param piece The piece code.
+     * @return The bitboard of all squares holding that piece.
+     */
+    public long pieces(int piece) {
+        return pieces[pieceIndex(piece)];
+    }
+
+    /**
+     * Returns the occupancy bitboard of one colour.
+     *
+     * @param colour WHITE or BLACK.
+     * @return The squares occupied by that colour.
+     */
+    public long colour(int colour) {
+        return colours[colour];
+    }
+
+    /**
+     * Returns the occupancy bitboard of both colours.
+     *
+     * @return All occupied squares.
+     */
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * Places a piece on an empty square.
+     *
+     * @param square The square (0-63), which must be empty.
+     * @param piece The non-zero piece code to place.
+     */
+    public void put(int square, int piece) {
+        long bit = 1L << square;
+        pieces[pieceIndex(piece)] |= bit;
+        colours[colourOf(piece)] |= bit;
+        occupied |= bit;
+        mailbox[square] = piece;
+        key ^= Zobrist.piece(piece, square);
+        if (piece == 1 || piece == -1) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        midgameScore += PieceSquareTables.midgame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phaseWeight(piece);
+        if (piece == 6 || piece == -6) {
+            kingSquares[colourOf(piece)] = square;
+        }
+    }
+
+    /**
+     * Removes whatever piece is on a square.
+     *
+     * @param square The square (0-63).
+     * @return The removed piece code, or 0 if the square was already empty.
+     */
+    public int remove(int square) {
+        int piece = mailbox[square];
+        if (piece != 0) {
+            long bit = 1L << square;
+            pieces[pieceIndex(piece)] &= ~bit;
+            colours[colourOf(piece)] &= ~bit;
+            occupied &= ~bit;
+            mailbox[square] = 0;
+            key ^= Zobrist.piece(piece, square);
+            if (piece == 1 || piece == -1) {
+                pawnKey ^= Zobrist.piece(piece, square);
+            }
+            midgameScore -= PieceSquareTables.midgame(piece, square);
+            endgameScore -= PieceSquareTables.endgame(piece, square);
+            phase -= PieceSquareTables.phaseWeight(piece);
+            if ((piece == 6 || piece == -6) && kingSquares[colourOf(piece)] == square) {
+                kingSquares[colourOf(piece)] = NO_SQUARE;
+            }
+        }
+        return piece;
+    }
+
+    /**
+     * Returns the square of a colour's king.
+     *
+     * @param colour WHITE or BLACK.
+     * @return The king's square, or NO_SQUARE if that colour has no king.
+     */
+    public int kingSquare(int colour) {
+        return kingSquares[colour];
+    }
+
+    /**
+     * Returns every piece of the given colour that attacks a square, using the
+     * supplied occupancy for sliding pieces. Passing an occupancy with some
+     * squares cleared lets callers look "through" pieces that are about to move.
+     *
+     * @param square The target square.
+     * @param byColour The attacking colour.
+     * @param occupancy The occupancy to use for sliding attacks.
+     * @return The attacking pieces.
+     */
+    public long attackersTo(int square, int byColour, long occupancy) {
+        int sign = byColour == WHITE ? 1 : -1;
+        long queens = pieces[pieceIndex(5 * sign)];
+        return (Bitboards.pawnAttacks(byColour ^ 1, square) & pieces[pieceIndex(sign)])
+                | (Bitboards.knightAttacks(square) & pieces[pieceIndex(3 * sign)])
+                | (Bitboards.kingAttacks(square) & pieces[pieceIndex(6 * sign)])
+                | (Bitboards.bishopAttacks(square, occupancy) & (pieces[pieceIndex(4 * sign)] | queens))
+                | (Bitboards.rookAttacks(square, occupancy) & (pieces[pieceIndex(2 * sign)] | queens));
+    }
+
+    /**
+     * Determines whether any piece of the given colour attacks a square.
+     *
+     * @param square The target square.
+     * @param byColour The attacking colour.
+     * @return True if the square is attacked.
+     */
+    public boolean isSquareAttacked(int square, int byColour) {
+        return attackersTo(square, byColour, occupied) != 0L;
+    }
+
+    /**
+     * Determines whether the king of the given colour is attacked.
+     *
+     * @param colour WHITE or BLACK.
+     * @return True if that colour's king is in check, false if it is not or
+     * if there is no king of that colour on the board.
+     */
+    public boolean isInCheck(int colour) {
+        int king = kingSquares[colour];
+        return king != NO_SQUARE && isSquareAttacked(king, colour ^ 1);
+    }
+
+    /**
+     * Relocates the piece on one square to another, capturing anything on the
+     * destination. No castling, en passant or promotion logic is applied.
+     *
+     * @param from The source square.
+     * @param to The destination square.
+     * @return The captured piece code, or 0 if the destination was empty.
+     */
+    public int relocate(int from, int to) {
+        int captured = remove(to);
+        int piece = remove(from);
+        if (piece != 0) {
+            put(to, piece);
+        }
+        return captured;
+    }
+
+    /**
+     * Clears the castling rights that are lost when a piece moves from or to
+     * the given squares.
+     *
+     * @param from The source square of the move.
+     * @param to The destination square of the move.
+     */
+    public void updateCastlingRights(int from, int to) {
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+    }
+
+    /**
+     * Plays an encoded move for the side to move and records what is needed
+     * to take it back. The move must be legal in this position; it is not
+     * validated here.
+     *
+     * @param move The encoded move (see Move).
+     * @throws IllegalStateException If the undo stack is full.
+     */
+    public void makeMove(int move) {
+        if (historySize == MAX_HISTORY) {
+            throw new IllegalStateException("Undo stack is full (" + MAX_HISTORY + " moves)");
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int piece = mailbox[from];
+
+        historyKeys[historySize] = key;
+
+        // Take off the captured piece (en passant captures beside the destination)
+        int captured = (flags & Move.EN_PASSANT) != 0
+                ? remove(Bitboards.square(Bitboards.row(from), Bitboards.col(to)))
+                : remove(to);
+        history[historySize++] = move
+                | ((long) (captured + 6) << 20)
+                | ((long) castlingRights << 24)
+                | ((long) (epSquare + 1) << 28)
+                | ((long) halfmoveClock << 35);
+
+        remove(from);
+        int promotion = Move.promotion(move);
+        put(to, promotion != 0 ? (piece > 0 ? promotion : -promotion) : piece);
+
+        if ((flags & Move.CASTLING) != 0) {
+            int row = Bitboards.row(from);
+            if (Bitboards.col(to) == 6) {
+                relocate(Bitboards.square(row, 7), Bitboards.square(row, 5));
+            } else {
+                relocate(Bitboards.square(row, 0), Bitboards.square(row, 3));
+            }
+        }
+
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        setEpSquare((flags & Move.DOUBLE_PUSH) != 0 ? (from + to) >>> 1 : NO_SQUARE);
+        halfmoveClock = (piece == 1 || piece == -1 || captured != 0) ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        key ^= Zobrist.blackToMove();
+    }
+
+    /**
+     * Takes back the most recent move made with makeMove.
+     *
+     * @throws IllegalStateException If there is no move to take back.
+     */
+    public void unmakeMove() {
+        if (historySize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        long entry = history[--historySize];
+        int move = (int) (entry & 0xFFFFF);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+
+        if ((flags & Move.CASTLING) != 0) {
+            int row = Bitboards.row(from);
+            if (Bitboards.col(to) == 6) {
+                relocate(Bitboards.square(row, 5), Bitboards.square(row, 7));
+            } else {
+                relocate(Bitboards.square(row, 3), Bitboards.square(row, 0));
+            }
+        }
+
+        // Put the mover back, undoing any promotion
+        int piece = remove(to);
+        if (Move.promotion(move) != 0) {
+            piece = sideToMove == WHITE ? 1 : -1;
+        }
+        put(from, piece);
+
+        int captured = (int) ((entry >>> 20) & 15) - 6;
+        if (captured != 0) {
+            if ((flags & Move.EN_PASSANT) != 0) {
+                put(Bitboards.square(Bitboards.row(from), Bitboards.col(to)), captured);
+            } else {
+                put(to, captured);
+            }
+        }
+
+        castlingRights = (int) ((entry >>> 24) & 15);
+        epSquare = (int) ((entry >>> 28) & 127) - 1;
+        halfmoveClock = (int) (entry >>> 35);
+        key = historyKeys[historySize];
+    }
+
+    /**
+     * Passes the turn without moving, for null-move pruning in a search. The
+     * en passant square is cleared and the halfmove clock advances. Take it
+     * back with unmakeNullMove. The side to move must not be in check.
+     *
+     * @throws IllegalStateException If the undo stack is full.
+     */
+    public void makeNullMove() {
+        if (historySize == MAX_HISTORY) {
+            throw new IllegalStateException("Undo stack is full (" + MAX_HISTORY + " moves)");
+        }
+        historyKeys[historySize] = key;
+        history[historySize++] = Move.NONE
+                | (6L << 20)
+                | ((long) castlingRights << 24)
+                | ((long) (epSquare + 1) << 28)
+                | ((long) halfmoveClock << 35);
+
+        setEpSquare(NO_SQUARE);
+        halfmoveClock++;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        key ^= Zobrist.blackToMove();
+    }
+
+    /**
+     * Takes back a null move made with makeNullMove.
+     *
+     * @throws IllegalStateException If the last entry on the undo stack is not
+     * a null move.
+     */
+    public void unmakeNullMove() {
+        if (historySize == 0 || (history[historySize - 1] & 0xFFFFF) != Move.NONE) {
+            throw new IllegalStateException("No null move to unmake");
+        }
+        long entry = history[--historySize];
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+        epSquare = (int) ((entry >>> 28) & 127) - 1;
+        halfmoveClock = (int) (entry >>> 35);
+        key = historyKeys[historySize];
+    }
+
+    /**
+     * Determines whether the current position has occurred before since the
+     * last capture or pawn move, judged by Zobrist key. Positions from before
+     * the undo stack (e.g. earlier than a loaded FEN) are not known, and
+     * neither are positions from before the most recent null move, which are
+     * not part of the game.
+     *
+     * @return True if the position is a repetition.
+     */
+    public boolean isRepetition() {
+        int limit = Math.min(halfmoveClock, historySize);
+        // historyKeys[historySize - i] is the key from i plies ago, before the
+        // move history[historySize - i]; only even distances have the same
+        // side to move, and two plies cannot repeat
+        for (int i = 1; i <= limit; i++) {
+            if ((history[historySize - i] & 0xFFFFF) == Move.NONE) {
+                return false;
+            }
+            if (i >= 4 && (i & 1) == 0 && historyKeys[historySize - i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a move from the undo stack.
+     *
+     * @param index The position on the stack, 0 for the oldest move.
+     * @return The encoded move, or Move.NONE for a null move.
+     */
+    public int historyMove(int index) {
+        return (int) (history[index] & 0xFFFFF);
+    }
+
+    /**
+     * Returns the number of moves on the undo stack.
+     *
+     * @return The number of moves that can be unmade.
+     */
+    public int historySize() {
+        return historySize;
+    }
+
+    /**
+     * Returns the Zobrist key of the position, maintained incrementally.
+     *
+     * @return The 64-bit position key.
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Computes the Zobrist key from scratch. This is only needed to verify the
+     * incrementally maintained key().
+     *
+     * @return The 64-bit position key.
+     */
+    public long computeKey() {
+        long k = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        if (sideToMove == BLACK) {
+            k ^= Zobrist.blackToMove();
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] != 0) {
+                k ^= Zobrist.piece(mailbox[sq], sq);
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Returns the Zobrist key of the pawns of both colours, maintained
+     * incrementally. It changes only on pawn moves, captures of pawns and
+     * promotions, so positions with the same pawn skeleton share it.
+     *
+     * @return The 64-bit pawn key; 0 when there are no pawns.
+     */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Computes the pawn key from scratch. This is only needed to verify the
+     * incrementally maintained pawnKey().
+     *
+     * @return The 64-bit pawn key.
+     */
+    public long computePawnKey() {
+        long k = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] == 1 || mailbox[sq] == -1) {
+                k ^= Zobrist.piece(mailbox[sq], sq);
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Returns the tapered material and piece-square evaluation, maintained
+     * incrementally, so this costs a multiply and a divide.
+     *
+     * @return The score in centipawns from White's point of view.
+     */
+    public int evaluate() {
+        return PieceSquareTables.taper(midgameScore, endgameScore, phase);
+    }
+
+    /**
+     * Computes the evaluation from scratch. This is only needed to verify the
+     * incrementally maintained evaluate().
+     *
+     * @return The score in centipawns from White's point of view.
+     */
+    public int computeEvaluation() {
+        int mg = 0;
+        int eg = 0;
+        int p = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = mailbox[sq];
+            if (piece != 0) {
+                mg += PieceSquareTables.midgame(piece, sq);
+                eg += PieceSquareTables.endgame(piece, sq);
+                p += PieceSquareTables.phaseWeight(piece);
+            }
+        }
+        return PieceSquareTables.taper(mg, eg, p);
+    }
+
+    public int midgameScore() {
+        return midgameScore;
+    }
+
+    public int endgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Returns the game phase: 1 per knight and bishop, 2 per rook and 4 per
+     * queen on the board.
+     *
+     * @return The phase, PieceSquareTables.MAX_PHASE in the starting position;
+     * it can exceed that after promotions.
+     */
+    public int phase() {
+        return phase;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int sideToMove) {
+        if (this.sideToMove != sideToMove) {
+            key ^= Zobrist.blackToMove();
+        }
+        this.sideToMove = sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    public void setEpSquare(int epSquare) {
+        key ^= Zobrist.enPassant(this.epSquare) ^ Zobrist.enPassant(epSquare);
+        this.epSquare = epSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Zobrist
+ *
+ * Random 64-bit keys for Zobrist hashing of positions. A position's key is
+ * the XOR of the keys of every piece on its square, the side to move, the
+ * castling rights and the en passant file, so it can be updated incrementally
+ * by XOR-ing keys in and out as the position changes.
+ *
+ * The keys come from a fixed-seed generator, so the same position has the
+ * same key in every run, which lets keys be stored on disk.
+ */
+package com.george.board;
+
+public final class Zobrist {
+
+    // Keys indexed [Position.pieceIndex(piece)][square]
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+
+    // Keys indexed by the 4-bit castling rights value
+    private static final long[] CASTLING = new long[16];
+
+    // Keys indexed by the column of the en passant square
+    private static final long[] EP_FILE = new long[8];
+
+    // Key toggled when black is to move
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed = next(seed);
+                PIECE_SQUARE[piece][sq] = scramble(seed);
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            seed = next(seed);
+            CASTLING[i] = scramble(seed);
+        }
+        CASTLING[0] = 0L;  // No rights contribute nothing
+        for (int i = 0; i < 8; i++) {
+            seed = next(seed);
+            EP_FILE[i] = scramble(seed);
+        }
+        seed = next(seed);
+        BLACK_TO_MOVE = scramble(seed);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key for a piece standing on a square.
+     *
+     * @param piece The non-zero piece code.
+     * @param square The square (0-63).
+     * @return The key.
+     */
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[Position.pieceIndex(piece)][square];
+    }
+
+    /**
+     * Returns the key for a set of castling rights.
+     *
+     * @param rights The castling rights flags (0-15).
+     * @return The key.
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * Returns the key for an en passant square.
+     *
+     * @param square The en passant square, or Position.NO_SQUARE.
+     * @return The key of the square's column, or 0 if there is none.
+     */
+    public static long enPassant(int square) {
+        return square == Position.NO_SQUARE ? 0L : EP_FILE[Bitboards.col(square)];
+    }
+
+    /**
+     * Returns the key toggled when the side to move changes.
+     *
+     * @return The key.
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    // xorshift64 step
+    private static long next(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+
+    // Mixes the raw generator output so consecutive keys share no structure
+    private static long scramble(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -49,7 +49,7 @@ public class ChessImage {
     /**
      * The BufferedImage that holds the image data for the chess image.
      */
-    private static BufferedImage image;
+    private BufferedImage image;
 
     /**
      * Creates a new ChessImage based on the file path to an existing image.
@@ -0,0 +1,209 @@
+package com.george.main;
+
+import com.george.board.ChessBoard;
+import com.george.stockfish.BestMove;
+import com.george.stockfish.EngineOptions;
+import com.george.stockfish.EnginePool;
+import com.george.stockfish.SearchInfo;
+import com.george.stockfish.StockfishConnector;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line entry point that analyses a file of positions with several
+ * engine processes at once.
+ *
+ * Usage:
+ * <pre>
+ *   BatchAnalysis &lt;input&gt; &lt;output&gt; [engines] [go arguments...]
+ * </pre>
+ * Each input line is a FEN, a "startpos [moves ...]" string, or a plain list
+ * of UCI moves from the starting position; blank lines and lines starting
+ * with '#' are skipped. The go arguments default to "depth 12". Every engine
+ * runs with the options of the profile named by the engine.profile system
+ * property, or of engine.properties in the working directory if it exists.
+ * FENs are checked before they reach an engine. A search that sends no
+ * bestmove within its time limit plus 10 s (or 300 s, or the batch.timeout
+ * system property in milliseconds, for searches without a time limit) counts
+ * as failed and its engine is restarted.
+ *
+ * Results are written as they complete, one tab-separated line per position:
+ * line number, best move, score, depth and principal variation. A position
+ * that fails gets a line number followed by "error: " and the reason, so every
+ * input position has a row. Each row is flushed as soon as it is written, so
+ * the file shows progress and survives a crash. Only a bounded number of
+ * positions are in flight at any time, so memory use stays flat however long
+ * the input is.
+ */
+public class BatchAnalysis {
+
+    // Positions allowed in flight per engine (one searching, one queued)
+    private static final int IN_FLIGHT_PER_ENGINE = 2;
+
+    // Added to a timed search before the engine counts as hung
+    private static final long SEARCH_GRACE_MILLIS = 10_000;
+
+    // Wait for a search without a time limit; the batch.timeout property overrides it
+    private static final long DEFAULT_SEARCH_TIMEOUT_MILLIS = 300_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: BatchAnalysis <input> <output> [engines] [go arguments...]");
+            return;
+        }
+        Path inputPath = Path.of(args[0]);
+        Path outputPath = Path.of(args[1]);
+        int engines = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        String go = args.length > 3 ? String.join(" ", Arrays.copyOfRange(args, 3, args.length)) : "depth 12";
+
+        long start = System.nanoTime();
+        AtomicLong done = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Semaphore inFlight = new Semaphore(engines * IN_FLIGHT_PER_ENGINE);
+        ExecutorService workers = Executors.newFixedThreadPool(engines);
+
+        EngineOptions options = EngineOptions.loadIfPresent(
+                Path.of(System.getProperty("engine.profile", EngineOptions.DEFAULT_PROFILE)));
+        System.out.println("Engine options: " + options);
+
+        try (EnginePool pool = new EnginePool(engines, options);
+                BufferedReader in = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8);
+                BufferedWriter out = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            pool.start();
+
+            String line;
+            long lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String position = line.trim();
+                if (position.isEmpty() || position.startsWith("#")) {
+                    continue;
+                }
+
+                // Blocks the reader once enough positions are queued
+                inFlight.acquire();
+                long number = lineNumber;
+                workers.execute(() -> {
+                    String row;
+                    try {
+                        row = analyse(pool, position, go);
+                        done.incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.out.println("Line " + number + " failed: " + e.getMessage());
+                        // Keep the row on one line and its columns intact
+                        row = "error: " + String.valueOf(e.getMessage()).replaceAll("\\s+", " ");
+                    }
+                    try {
+                        writeRow(out, number, row);
+                    } catch (IOException e) {
+                        System.out.println("Line " + number + " could not be written: " + e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Analysed %d positions (%d failed) in %.1f s with %d engines (%.1f positions/s)%n",
+                    done.get(), failed.get(), seconds, engines, done.get() / seconds);
+            System.out.printf("Mean lease latency %.0f us, engine restarts %d%n",
+                    pool.getAverageLeaseLatencyMicros(), pool.getRestartCount());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Rows come from several workers; each is flushed so none waits in the buffer
+    private static void writeRow(BufferedWriter out, long number, String row) throws IOException {
+        synchronized (out) {
+            out.write(number + "\t" + row);
+            out.newLine();
+            out.flush();
+        }
+    }
+
+    // Runs one search on a leased engine and formats the result columns
+    private static String analyse(EnginePool pool, String position, String go) throws Exception {
+        // Rejected here, a bad FEN costs an error row instead of a confused engine
+        String command = positionCommand(position);
+        long timeout = searchTimeoutMillis(go);
+        try (EnginePool.Lease lease = pool.lease()) {
+            StockfishConnector engine = lease.engine();
+            try {
+                engine.sendCommand(command);
+                BestMove best;
+                try {
+                    best = engine.search(go).get(timeout, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    throw new TimeoutException("no bestmove within " + timeout + " ms");
+                }
+                return best.move() + "\t" + infoColumns(best.info());
+            } catch (Exception e) {
+                lease.invalidate();
+                throw e;
+            }
+        }
+    }
+
+    // Throws IllegalArgumentException for a FEN the board cannot load
+    private static String positionCommand(String position) {
+        if (position.startsWith("startpos")) {
+            return "position " + position;
+        }
+        String fen = position.startsWith("fen ") ? position.substring(4)
+                : position.indexOf('/') >= 0 ? position : null;
+        if (fen == null) {
+            return "position startpos moves " + position;
+        }
+        int moves = fen.indexOf(" moves");
+        ChessBoard.fromFen(moves >= 0 ? fen.substring(0, moves) : fen);
+        return "position fen " + fen;
+    }
+
+    // How long to wait for bestmove: the time the go arguments allow plus a
+    // grace period, or a fixed allowance for depth, nodes and mate searches
+    private static long searchTimeoutMillis(String go) {
+        String[] tokens = go.trim().split("\\s+");
+        long millis = 0;
+        for (int i = 0; i + 1 < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "movetime", "wtime", "btime" -> {
+                    try {
+                        millis = Math.max(millis, Long.parseLong(tokens[i + 1]));
+                    } catch (NumberFormatException e) {
+                        // Stockfish will reject it; the fixed allowance applies
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return millis > 0 ? millis + SEARCH_GRACE_MILLIS
+                : Long.getLong("batch.timeout", DEFAULT_SEARCH_TIMEOUT_MILLIS);
+    }
+
+    // Formats "score, depth, pv" for the output file
+    private static String infoColumns(SearchInfo info) {
+        if (info == null) {
+            return "\t\t";
+        }
+        String score = (info.isMate() ? "mate " : "cp ") + info.score();
+        return score + "\t" + info.depth() + "\t" + info.pv();
+    }
+}
@@ -1,46 +1,135 @@
 package com.george.main;
 
 import com.george.board.ChessBoard;
+import com.george.board.Move;
+import com.george.board.MoveGenerator;
+import com.george.search.SearchResult;
+import com.george.search.Searcher;
+import com.george.stockfish.AnalysisCache;
+import com.george.stockfish.BestMove;
+import com.george.stockfish.EngineOptions;
+import com.george.stockfish.SearchLimits;
 import com.george.stockfish.StockfishConnector;
+import com.george.stockfish.TimeManager;
 import com.george.window.ChessWindow;
 import javafx.application.Platform;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 
 public class ChessGame {
 
+    // Stockfish's answers are remembered across games in this file
+    private static final Path ANALYSIS_CACHE_FILE = Path.of("analysis.cache");
+    private static final int ANALYSIS_CACHE_ENTRIES = 4096;
+    private static final int ANALYSIS_CACHE_FILE_SLOTS = 1 << 16;
+
+    // Stockfish plays on a clock of five minutes plus two seconds per move;
+    // the TimeManager turns it into a move time for each search
+    private static final SearchLimits TIME_CONTROL = SearchLimits.clock(300_000, 300_000, 2_000, 2_000, 0);
+
+    // Cached results are filed under the time control rather than the move
+    // time of the individual search, which changes every move
+    private static final String CACHE_LIMITS = TIME_CONTROL.toGoArguments();
+
+    // Black is played by the in-process search with this much time per move
+    private static final long BLACK_SEARCH_MILLIS = 200;
+
+    // The window's board is changed on the JavaFX thread and only read by the
+    // game thread after the CountDownLatch has handed it back, so each game
+    // needs its own window and board but no locking.
     private ChessWindow chessWindow;
     private StockfishConnector stockfish;
+    private EngineOptions engineOptions;
+    private AnalysisCache analysisCache;
     private StringBuilder moveHistory;
-    private Random random;
+    private final Searcher searcher = new Searcher();
+
+    // The position after the last capture or pawn move and the moves played
+    // since; enough for the engine to see repetitions without the whole game
+    private String irreversibleFen = ChessBoard.START_FEN;
+    private final List<String> reversibleMoves = new ArrayList<>();
+
+    // Pondering: Stockfish searches the reply it expects while Black thinks
+    private final boolean pondering;
+    private CompletableFuture<BestMove> ponderSearch;
+    private String ponderMove;
+    private String lastBlackMove;
+    private SearchLimits ponderLimits;
+    private int ponderAttempts;
+    private int ponderHits;
+
+    private final TimeManager timeManager = new TimeManager();
+    private long whiteClockMillis = TIME_CONTROL.whiteTime();
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
 
     public ChessGame(ChessWindow chessWindow) {
+        this(chessWindow, false);
+    }
+
+    /**
+     * Creates a game between Stockfish (White) and the built-in search (Black).
+     *
+     * @param chessWindow The window showing the game.
+     * @param pondering True to let Stockfish think on Black's expected reply
+     * while Black is choosing its move.
+     */
+    public ChessGame(ChessWindow chessWindow, boolean pondering) {
         this.chessWindow = chessWindow;
-        this.stockfish = new StockfishConnector();
+        this.pondering = pondering;
+        this.engineOptions = loadEngineOptions();
+        this.stockfish = new StockfishConnector(engineOptions.getEnginePath());
         this.moveHistory = new StringBuilder();
-        this.random = new Random();
     }
 
     public void startGame() throws IOException, InterruptedException {
         if (stockfish.startEngine()) {
             try {
+                openAnalysisCache();
                 initializeStockfish();
                 displayInitialBoard();
                 playGameLoop();
             } finally {
                 stockfish.stopEngine();
+                if (analysisCache != null) {
+                    analysisCache.close();
+                }
             }
         } else {
             System.out.println("Failed to start Stockfish engine.");
         }
     }
 
+    // Reads engine.properties from the working directory, if there is one
+    private static EngineOptions loadEngineOptions() {
+        try {
+            return EngineOptions.loadIfPresent(Path.of(EngineOptions.DEFAULT_PROFILE));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Ignoring engine profile: " + e.getMessage());
+            return new EngineOptions();
+        }
+    }
+
+    private void openAnalysisCache() {
+        try {
+            analysisCache = new AnalysisCache(ANALYSIS_CACHE_ENTRIES, ANALYSIS_CACHE_FILE, ANALYSIS_CACHE_FILE_SLOTS);
+        } catch (IOException e) {
+            System.out.println("Analysis cache file unavailable, caching in memory only: " + e.getMessage());
+            analysisCache = new AnalysisCache(ANALYSIS_CACHE_ENTRIES);
+        }
+    }
+
     private void initializeStockfish() throws IOException {
         stockfish.sendCommand("uci");
         stockfish.getResponse();
+        if (pondering) {
+            engineOptions.set("Ponder", "true");
+        }
+        stockfish.applyOptions(engineOptions);
         stockfish.sendCommand("isready");
         stockfish.getResponse();
         stockfish.sendCommand("position startpos");
@@ -66,8 +155,8 @@ public class ChessGame {
                 System.out.println("STOCKFISH MOVE NOW (WHITE)");
                 makeStockfishMove();
             } else {
-                System.out.println("RANDOM MOVE NOW (BLACK)");
-                makeRandomMove();
+                System.out.println("SEARCH MOVE NOW (BLACK)");
+                makeSearchMove();
             }
 
             // Check if the game has ended
@@ -89,12 +178,22 @@ public class ChessGame {
             Thread.sleep(500);
         }
         System.out.println("Exiting game loop.");
+        System.out.printf("Engine traffic: %d commands, %d bytes, %d position updates skipped, %.0f us per send%n",
+                stockfish.getCommandsSent(), stockfish.getBytesSent(),
+                stockfish.getSkippedPositionCount(), stockfish.getAverageSendMicros());
+        System.out.printf("Time used: %d of %d ms allotted over %d searches, worst overrun %d ms%n",
+                timeManager.getUsedMillis(), timeManager.getAllottedMillis(),
+                timeManager.getMoveCount(), timeManager.getMaxOverrunMillis());
+        if (pondering) {
+            System.out.printf("Ponder hits: %d of %d (%.0f%%)%n", ponderHits, ponderAttempts,
+                    ponderAttempts == 0 ? 0.0 : 100.0 * ponderHits / ponderAttempts);
+        }
     }
 
     private void makeStockfishMove() throws IOException, InterruptedException {
         try {
-            stockfish.sendCommand("go movetime 1000");
-            String bestMove = stockfish.getBestMove();
+            BestMove result = searchWithCache(chessWindow.getBoard().hash());
+            String bestMove = result.hasMove() ? result.move() : null;
 
             if (bestMove == null || bestMove.isEmpty()) {
                 System.out.println("Stockfish could not find a move. Game over.");
@@ -108,7 +207,11 @@ public class ChessGame {
             Platform.runLater(() -> {
                 try {
                     System.out.println("Applying Stockfish move to the board: " + bestMove);
-                    chessWindow.movePiece(bestMove);
+                    playOnBoard(bestMove);
+                    if (result.info() != null) {
+                        // Stockfish plays White, so its score is already from White's side
+                        chessWindow.getBoard().setEvaluation(result.info().centipawns());
+                    }
                     chessWindow.displayChessPieces(-1, -1);
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -117,37 +220,127 @@ public class ChessGame {
                 }
             });
             latch.await();
+            recordPlayedMove(bestMove);
 
             System.out.println("Board state after Stockfish's move:");
             chessWindow.getBoard().printBoardWithIndices();
+
+            if (pondering && result.ponder() != null) {
+                startPondering(result.ponder());
+            }
         } catch (Exception e) {
             System.out.println("Exception in makeStockfishMove: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private void makeRandomMove() throws IOException, InterruptedException {
-        try {
-            List<int[]> legalMoves = chessWindow.getBoard().getAllLegalMoves(ChessBoard.Player.BLACK);
+    // Searches the position after Black's expected reply until Black has moved
+    private void startPondering(String expectedReply) throws IOException {
+        List<String> moves = new ArrayList<>(reversibleMoves);
+        moves.add(expectedReply);
+        stockfish.setPosition(irreversibleFen, moves);
+        ponderMove = expectedReply;
+        // The position after the reply is unknown here, so its complexity is too
+        ponderLimits = timeManager.allot(clock(), true, chessWindow.getBoard().gamePhase(), -1, false);
+        ponderSearch = stockfish.search("ponder " + ponderLimits.toGoArguments());
+        ponderAttempts++;
+        System.out.println("Stockfish is pondering on " + expectedReply);
+    }
+
+    // Finishes the ponder search: on a hit it becomes the real search, on a
+    // miss it is stopped and its result thrown away
+    private BestMove resolvePonder() throws Exception {
+        CompletableFuture<BestMove> search = ponderSearch;
+        ponderSearch = null;
+        if (search == null) {
+            return null;
+        }
+        if (ponderMove.equals(lastBlackMove)) {
+            ponderHits++;
+            System.out.println("Ponder hit on " + ponderMove);
+            long start = System.nanoTime();
+            stockfish.ponderHit();
+            BestMove result = search.get();
+            chargeClock(ponderLimits.moveTime(), (System.nanoTime() - start) / 1_000_000);
+            return result;
+        }
+        stockfish.stop();
+        search.get();
+        return null;
+    }
+
+    // Answers from the analysis cache when possible, otherwise asks Stockfish
+    private BestMove searchWithCache(long positionKey) throws Exception {
+        BestMove pondered = resolvePonder();
+        if (pondered != null) {
+            analysisCache.put(positionKey, CACHE_LIMITS, pondered);
+            return pondered;
+        }
+
+        ChessBoard board = chessWindow.getBoard();
+        BestMove result = analysisCache.get(positionKey, CACHE_LIMITS);
+        // A key collision, or a cache file written with other Zobrist keys,
+        // can return a move for a different position
+        if (result != null && result.hasMove() && board.parseUciMove(result.move()) != Move.NONE) {
+            System.out.println("Stockfish's move found in the analysis cache");
+            chargeClock(0, 0);
+            return result;
+        }
+        if (result != null) {
+            System.out.println("Ignoring cached move " + result.move() + ", which is not legal here");
+        }
+
+        int legalMoves = board.generateLegalMoves(ChessBoard.Player.WHITE, moveBuffer, 0);
+        SearchLimits limits = timeManager.allot(clock(), true, board.gamePhase(), legalMoves,
+                board.isInCheck(ChessBoard.Player.WHITE));
+
+        // The engine only hears about the position when it has to search it
+        stockfish.setPosition(irreversibleFen, reversibleMoves);
+        long start = System.nanoTime();
+        result = stockfish.search(limits).get();
+        chargeClock(limits.moveTime(), (System.nanoTime() - start) / 1_000_000);
+        analysisCache.put(positionKey, CACHE_LIMITS, result);
+        return result;
+    }
+
+    // The time control with White's clock as it stands; Black's clock is not kept
+    private SearchLimits clock() {
+        return SearchLimits.clock(whiteClockMillis, TIME_CONTROL.blackTime(),
+                TIME_CONTROL.whiteIncrement(), TIME_CONTROL.blackIncrement(), TIME_CONTROL.movesToGo());
+    }
 
-            if (legalMoves.isEmpty()) {
+    // Takes a move's time off White's clock and adds the increment
+    private void chargeClock(long allottedMillis, long usedMillis) {
+        if (allottedMillis > 0) {
+            timeManager.record(allottedMillis, usedMillis);
+            System.out.printf("Stockfish used %d of %d ms allotted%n", usedMillis, allottedMillis);
+        }
+        whiteClockMillis = Math.max(0, whiteClockMillis - usedMillis) + TIME_CONTROL.whiteIncrement();
+    }
+
+    private void makeSearchMove() throws IOException, InterruptedException {
+        try {
+            SearchResult result = searcher.search(chessWindow.getBoard(), Searcher.MAX_PLY, 0, BLACK_SEARCH_MILLIS);
+            if (result.move() == Move.NONE) {
                 System.out.println("Black has no legal moves. Game over.");
                 return;
             }
+            System.out.println("Black's search: " + result);
 
-            int[] randomMove = legalMoves.get(random.nextInt(legalMoves.size()));
-            String from = chessWindow.getBoard().toChessNotation(randomMove[0], randomMove[1]);
-            String to = chessWindow.getBoard().toChessNotation(randomMove[2], randomMove[3]);
-            String randomMoveNotation = from + to;
+            // The window promotes every pawn to a queen, so Black's moves say so too
+            String searchMove = result.bestMoveUci();
+            String searchMoveNotation = Move.promotion(result.move()) != 0
+                    ? searchMove.substring(0, 4) + "q" : searchMove;
 
-            System.out.println("Random Move (Black): " + randomMoveNotation);
-            updateMoveHistory(randomMoveNotation);
+            System.out.println("Search Move (Black): " + searchMoveNotation);
+            lastBlackMove = searchMoveNotation;
+            updateMoveHistory(searchMoveNotation);
 
             CountDownLatch latch = new CountDownLatch(1);
             Platform.runLater(() -> {
                 try {
-                    System.out.println("Applying Black's random move to the board: " + randomMoveNotation);
-                    chessWindow.movePiece(randomMoveNotation);
+                    System.out.println("Applying Black's move to the board: " + searchMoveNotation);
+                    playOnBoard(searchMoveNotation);
                     chessWindow.displayChessPieces(-1, -1);
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -156,18 +349,40 @@ public class ChessGame {
                 }
             });
             latch.await();
+            recordPlayedMove(searchMoveNotation);
 
             System.out.println("Board state after Black's move:");
             chessWindow.getBoard().printBoardWithIndices();
-
-            // Inform Stockfish about the updated position after Black's move
-            stockfish.sendCommand("position startpos moves " + moveHistory.toString());
         } catch (Exception e) {
-            System.out.println("Exception in makeRandomMove: " + e.getMessage());
+            System.out.println("Exception in makeSearchMove: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    // Plays a game move with makeMove rather than movePiece, so the board's
+    // undo stack holds the whole game and Black's search, which copies it,
+    // recognises repetitions of positions played before the search started
+    private void playOnBoard(String uci) {
+        ChessBoard board = chessWindow.getBoard();
+        int move = board.parseUciMove(uci);
+        if (move == Move.NONE) {
+            throw new IllegalArgumentException("Not a legal move in this position: " + uci);
+        }
+        board.makeMove(move);
+    }
+
+    // Called once the board has applied a move; restarts the engine's move
+    // list whenever the move could not be repeated (a capture or pawn move)
+    private void recordPlayedMove(String move) {
+        ChessBoard board = chessWindow.getBoard();
+        if (board.getPosition().halfmoveClock() == 0) {
+            irreversibleFen = board.toFen();
+            reversibleMoves.clear();
+        } else {
+            reversibleMoves.add(move);
+        }
+    }
+
     private void updateMoveHistory(String move) {
         if (moveHistory.length() > 0) {
             moveHistory.append(" ");
@@ -18,7 +18,7 @@ public class Main {
                 // I will run the engine in a different thread, so we
                 // can easily see the pieces move on the board.
                 // The window and engine must run in different threads. 
-                ChessGame chessGame = new ChessGame(chessWindow);
+                ChessGame chessGame = new ChessGame(chessWindow, true);
                 Thread gameThread = new Thread(() -> {
                     try {
                         chessGame.startGame();
@@ -0,0 +1,128 @@
+package com.george.main;
+
+import com.george.board.ChessBoard;
+import com.george.board.Perft;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Command line entry point for validating and timing move generation.
+ *
+ * Usage:
+ * <pre>
+ *   PerftMain perft &lt;depth&gt; [fen]   count leaf nodes and report nodes/second
+ *   PerftMain divide &lt;depth&gt; [fen]  count leaf nodes per root move
+ *   PerftMain suite [maxNodes]       check the reference positions below
+ * </pre>
+ * The suite exits with status 1 if any count differs from its reference, so it
+ * can be used as a correctness gate before and after move generator changes.
+ * The same positions run at shallow depth in PerftTest on every mvn test; the
+ * suite is for the deeper counts.
+ */
+public class PerftMain {
+
+    // Reference positions and node counts from the Chess Programming Wiki perft results:
+    // {name, fen, depth, expected nodes}
+    private static final String[][] SUITE = {
+        {"start", ChessBoard.START_FEN, "5", "4865609"},
+        {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "4", "4085603"},
+        {"position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "5", "674624"},
+        {"position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "4", "422333"},
+        {"position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "4", "2103487"},
+        {"position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "4", "3894594"}
+    };
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            printUsage();
+            return;
+        }
+
+        switch (args[0]) {
+            case "perft" -> {
+                ChessBoard board = boardFor(args);
+                int depth = Integer.parseInt(args[1]);
+                long start = System.nanoTime();
+                long nodes = new Perft(board).perft(depth);
+                report("perft(" + depth + ")", nodes, System.nanoTime() - start);
+            }
+            case "divide" -> {
+                ChessBoard board = boardFor(args);
+                int depth = Integer.parseInt(args[1]);
+                long start = System.nanoTime();
+                long total = 0;
+                for (Map.Entry<String, Long> entry : new Perft(board).divide(depth).entrySet()) {
+                    System.out.println(entry.getKey() + ": " + entry.getValue());
+                    total += entry.getValue();
+                }
+                report("divide(" + depth + ")", total, System.nanoTime() - start);
+            }
+            case "suite" -> {
+                long maxNodes = args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE;
+                if (!runSuite(maxNodes)) {
+                    System.exit(1);
+                }
+            }
+            default -> printUsage();
+        }
+    }
+
+    /**
+     * Runs every reference position whose expected node count is within the
+     * limit and prints one line per position.
+     *
+     * @param maxNodes Positions with more expected nodes than this are skipped.
+     * @return True if every position that ran matched its reference count.
+     */
+    private static boolean runSuite(long maxNodes) {
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (String[] entry : SUITE) {
+            long expected = Long.parseLong(entry[3]);
+            if (expected > maxNodes) {
+                System.out.println("SKIP " + entry[0]);
+                continue;
+            }
+            ChessBoard board = ChessBoard.fromFen(entry[1]);
+            int depth = Integer.parseInt(entry[2]);
+
+            long start = System.nanoTime();
+            long nodes = new Perft(board).perft(depth);
+            long elapsed = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalNanos += elapsed;
+
+            boolean ok = nodes == expected;
+            passed &= ok;
+            System.out.println((ok ? "PASS " : "FAIL ") + entry[0] + " depth " + depth
+                    + ": " + nodes + (ok ? "" : " (expected " + expected + ")"));
+        }
+        report("suite", totalNodes, totalNanos);
+        return passed;
+    }
+
+    private static ChessBoard boardFor(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(2);
+        }
+        if (args.length > 2) {
+            // Everything after the depth is the FEN, which contains spaces
+            return ChessBoard.fromFen(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+        }
+        return new ChessBoard();
+    }
+
+    private static void report(String label, long nodes, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        long nps = seconds > 0 ? (long) (nodes / seconds) : 0;
+        System.out.println(label + ": " + nodes + " nodes in " + (nanos / 1_000_000) + " ms (" + nps + " nodes/s)");
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: PerftMain perft <depth> [fen]");
+        System.out.println("       PerftMain divide <depth> [fen]");
+        System.out.println("       PerftMain suite [maxNodes]");
+    }
+}
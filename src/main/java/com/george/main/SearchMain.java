@@ -0,0 +1,71 @@
+package com.george.main;
+
+import com.george.board.ChessBoard;
+import com.george.search.ParallelSearch;
+import com.george.search.Searcher;
+import java.util.Arrays;
+
+/**
+ * Command line entry point for the in-process search.
+ *
+ * Usage:
+ * <pre>
+ *   SearchMain search &lt;millis&gt; [threads] [fen]        search and print each iteration
+ *   SearchMain scaling &lt;maxThreads&gt; &lt;millis&gt; [fen]  nodes/second for 1, 2, 4 ... threads
+ * </pre>
+ * The thread count defaults to the number of available processors, and the
+ * position to the starting position.
+ */
+public class SearchMain {
+
+    private static final int HASH_MB = 256;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+
+        switch (args[0]) {
+            case "search" -> {
+                long millis = Long.parseLong(args[1]);
+                int threads = args.length > 2 ? Integer.parseInt(args[2])
+                        : Runtime.getRuntime().availableProcessors();
+                ChessBoard board = boardFor(args, 3);
+                try (ParallelSearch search = new ParallelSearch(threads, HASH_MB)) {
+                    search.setListener(result -> System.out.println("info " + result));
+                    String best = search.search(board, Searcher.MAX_PLY, 0, millis).bestMoveUci();
+                    System.out.printf("info string pawn table hit rate %.1f%%%n", 100 * search.pawnTableHitRate());
+                    System.out.println("bestmove " + best);
+                }
+            }
+            case "scaling" -> {
+                if (args.length < 3) {
+                    printUsage();
+                    return;
+                }
+                int maxThreads = Integer.parseInt(args[1]);
+                long millis = Long.parseLong(args[2]);
+                ChessBoard board = boardFor(args, 3);
+                for (String line : ParallelSearch.scalingReport(board, maxThreads, millis, HASH_MB)) {
+                    System.out.println(line);
+                }
+            }
+            default -> printUsage();
+        }
+    }
+
+    // The FEN may be given as one argument or as its six space-separated fields
+    private static ChessBoard boardFor(String[] args, int fenIndex) {
+        if (args.length <= fenIndex) {
+            return new ChessBoard();
+        }
+        return ChessBoard.fromFen(String.join(" ", Arrays.copyOfRange(args, fenIndex, args.length)));
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  SearchMain search <millis> [threads] [fen]");
+        System.out.println("  SearchMain scaling <maxThreads> <millis> [fen]");
+    }
+}
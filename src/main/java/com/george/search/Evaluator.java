@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Evaluator
+ *
+ * Static evaluation for the search: material and tapered midgame/endgame
+ * piece-square values, which Position keeps up to date as pieces are put and
+ * removed, plus pawn structure terms, from the point of view of the side to
+ * move.
+ *
+ * Pawn structure scores passed pawns (more the further they have advanced)
+ * and penalises doubled, isolated and backward pawns. It depends on nothing
+ * but the pawns, so the search looks it up in a PawnTable by pawn key.
+ */
+package com.george.search;
+
+import com.george.board.Bitboards;
+import com.george.board.PieceSquareTables;
+import com.george.board.Position;
+
+public final class Evaluator {
+
+    // Piece values in centipawns for move ordering, indexed by piece code (1 pawn ... 6 king)
+    static final int[] PIECE_VALUES = {0, 100, 500, 320, 330, 900, 0};
+
+    // Passed pawn bonus by ranks advanced from the pawn's own back rank
+    private static final int[] PASSED_MIDGAME = {0, 2, 5, 10, 20, 35, 55, 0};
+    private static final int[] PASSED_ENDGAME = {0, 5, 10, 20, 35, 60, 90, 0};
+
+    private static final int DOUBLED_MIDGAME = -10;
+    private static final int DOUBLED_ENDGAME = -25;
+    private static final int ISOLATED_MIDGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int BACKWARD_MIDGAME = -8;
+    private static final int BACKWARD_ENDGAME = -12;
+
+    // Squares of each column, and of the columns either side of it
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    // Squares in front of a pawn on its own and the adjacent columns, indexed
+    // [colour][square]; no enemy pawn there means the pawn is passed
+    private static final long[][] PASSED_SPAN = new long[2][64];
+
+    // Squares level with or behind a pawn on the adjacent columns, from which
+    // a friendly pawn could support its advance, indexed [colour][square]
+    private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+    static {
+        for (int col = 0; col < 8; col++) {
+            FILES[col] = Bitboards.FILE_A << col;
+        }
+        for (int col = 0; col < 8; col++) {
+            ADJACENT_FILES[col] = (col > 0 ? FILES[col - 1] : 0L) | (col < 7 ? FILES[col + 1] : 0L);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int row = Bitboards.row(sq);
+            int col = Bitboards.col(sq);
+            // Row 0 is the eighth rank, so White advances towards lower rows
+            long above = row == 0 ? 0L : -1L >>> (64 - 8 * row);
+            long below = row == 7 ? 0L : -1L << (8 * (row + 1));
+            long levelAndAbove = above | (Bitboards.ROW_0 << (8 * row));
+            long levelAndBelow = below | (Bitboards.ROW_0 << (8 * row));
+            long span = FILES[col] | ADJACENT_FILES[col];
+            PASSED_SPAN[Position.WHITE][sq] = span & above;
+            PASSED_SPAN[Position.BLACK][sq] = span & below;
+            SUPPORT_SPAN[Position.WHITE][sq] = ADJACENT_FILES[col] & levelAndBelow;
+            SUPPORT_SPAN[Position.BLACK][sq] = ADJACENT_FILES[col] & levelAndAbove;
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * Evaluates a position without searching, computing the pawn structure
+     * directly.
+     *
+     * @param position The position to evaluate.
+     * @return The score in centipawns; positive is good for the side to move.
+     */
+    public static int evaluate(Position position) {
+        return evaluate(position, pawnStructure(position.pieces(1), position.pieces(-1)));
+    }
+
+    /**
+     * Evaluates a position without searching, taking the pawn structure from
+     * a pawn table.
+     *
+     * @param position The position to evaluate.
+     * @param pawns The pawn table to look the pawn structure up in.
+     * @return The score in centipawns; positive is good for the side to move.
+     */
+    public static int evaluate(Position position, PawnTable pawns) {
+        return evaluate(position, pawns.probe(position));
+    }
+
+    /**
+     * Scores the pawn structure of both colours.
+     *
+     * @param whitePawns The bitboard of the white pawns.
+     * @param blackPawns The bitboard of the black pawns.
+     * @return The midgame and endgame scores from White's point of view,
+     * packed with PawnTable.pack().
+     */
+    public static long pawnStructure(long whitePawns, long blackPawns) {
+        long white = pawnStructure(Position.WHITE, whitePawns, blackPawns);
+        long black = pawnStructure(Position.BLACK, blackPawns, whitePawns);
+        return PawnTable.pack(PawnTable.midgame(white) - PawnTable.midgame(black),
+                PawnTable.endgame(white) - PawnTable.endgame(black));
+    }
+
+    private static int evaluate(Position position, long pawnScore) {
+        int score = position.evaluate() + PieceSquareTables.taper(PawnTable.midgame(pawnScore),
+                PawnTable.endgame(pawnScore), position.phase());
+        return position.sideToMove() == Position.WHITE ? score : -score;
+    }
+
+    // The terms of one colour's pawns, packed, counted positively
+    private static long pawnStructure(int colour, long own, long enemy) {
+        int midgame = 0;
+        int endgame = 0;
+
+        for (int col = 0; col < 8; col++) {
+            int count = Long.bitCount(own & FILES[col]);
+            if (count > 1) {
+                midgame += DOUBLED_MIDGAME * (count - 1);
+                endgame += DOUBLED_ENDGAME * (count - 1);
+            }
+        }
+
+        for (long remaining = own; remaining != 0; remaining &= remaining - 1) {
+            int sq = Bitboards.lsb(remaining);
+            int col = Bitboards.col(sq);
+            // Of doubled pawns, only the front one can be passed
+            long ahead = PASSED_SPAN[colour][sq] & FILES[col];
+
+            if ((enemy & PASSED_SPAN[colour][sq]) == 0 && (own & ahead) == 0) {
+                int advanced = colour == Position.WHITE ? 7 - Bitboards.row(sq) : Bitboards.row(sq);
+                midgame += PASSED_MIDGAME[advanced];
+                endgame += PASSED_ENDGAME[advanced];
+            }
+
+            if ((own & ADJACENT_FILES[col]) == 0) {
+                midgame += ISOLATED_MIDGAME;
+                endgame += ISOLATED_ENDGAME;
+            } else if ((own & SUPPORT_SPAN[colour][sq]) == 0) {
+                // No pawn can ever defend it, and an enemy pawn guards the square in front
+                int stop = colour == Position.WHITE ? sq - 8 : sq + 8;
+                if (stop >= 0 && stop < 64 && (Bitboards.pawnAttacks(colour, stop) & enemy) != 0) {
+                    midgame += BACKWARD_MIDGAME;
+                    endgame += BACKWARD_ENDGAME;
+                }
+            }
+        }
+        return PawnTable.pack(midgame, endgame);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: ParallelSearch
+ *
+ * Lazy SMP: several Searchers work on the same position at once, each on its
+ * own copy of the board with its own move stacks, and share nothing but the
+ * transposition table. Helpers skip different iterations, so together the
+ * threads cover several depths; whatever one thread stores, the others find
+ * in the table and do not search again. This is the model of Stockfish's
+ * thread.cpp, without the voting between threads: the calling thread is the
+ * main searcher, its limits apply, and its result is returned.
+ *
+ * Helpers run on platform threads created once with the ParallelSearch. The
+ * search is CPU-bound and never blocks, so virtual threads would gain nothing
+ * and would share carrier threads with unrelated work. When the main search
+ * ends, every helper is told to stop and is waited for, so no thread is still
+ * searching when search() returns.
+ */
+package com.george.search;
+
+import com.george.board.ChessBoard;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class ParallelSearch implements AutoCloseable {
+
+    private final TranspositionTable table;
+    private final Searcher main;
+    private final List<Searcher> helpers = new ArrayList<>();
+    private final ExecutorService executor;
+
+    // Set when the main search is over; helpers poll it with their limits
+    private volatile boolean helpersStopped;
+
+    /**
+     * Creates a parallel search with its own transposition table.
+     *
+     * @param threads The total number of search threads, at least 1.
+     * @param hashMegabytes The size of the shared table in MB.
+     */
+    public ParallelSearch(int threads, int hashMegabytes) {
+        this(threads, new TranspositionTable(hashMegabytes));
+    }
+
+    /**
+     * Creates a parallel search sharing an existing transposition table.
+     *
+     * @param threads The total number of search threads, at least 1,
+     * including the thread that calls search().
+     * @param table The shared table.
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one search thread: " + threads);
+        }
+        this.table = table;
+        this.main = new Searcher(table);
+        main.setAgesTable(false);
+        for (int i = 1; i < threads; i++) {
+            Searcher helper = new Searcher(table);
+            helper.setAgesTable(false);
+            helper.setHelperIndex(i);
+            helper.setStopSignal(() -> helpersStopped);
+            helpers.add(helper);
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread thread = new Thread(r, "search-helper-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches a position with every thread. The board is only read, by all
+     * threads at once, and must not change until the search returns.
+     *
+     * @param board The board to search.
+     * @param maxDepth The deepest iteration of the main searcher.
+     * @param maxNodes The node limit of the main searcher, or 0 for none.
+     * @param maxMillis The time limit in milliseconds, or 0 for none.
+     * @return The main searcher's result, with the node count of all threads.
+     */
+    public SearchResult search(ChessBoard board, int maxDepth, long maxNodes, long maxMillis) {
+        helpersStopped = false;
+        table.newSearch();
+        List<Future<SearchResult>> running = new ArrayList<>();
+        for (Searcher helper : helpers) {
+            running.add(executor.submit(() -> helper.search(board, Searcher.MAX_PLY, 0, 0)));
+        }
+
+        SearchResult result;
+        try {
+            result = main.search(board, maxDepth, maxNodes, maxMillis);
+        } finally {
+            helpersStopped = true;
+            for (Future<SearchResult> future : running) {
+                awaitHelper(future);
+            }
+        }
+
+        long nodes = main.getNodes();
+        for (Searcher helper : helpers) {
+            nodes += helper.getNodes();
+        }
+        return new SearchResult(result.move(), result.score(), result.depth(), nodes,
+                result.timeMillis(), result.pv());
+    }
+
+    /**
+     * Stops a running search from another thread.
+     */
+    public void stop() {
+        main.stop();
+    }
+
+    /**
+     * Registers a listener for the main searcher's completed iterations.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        main.setListener(listener);
+    }
+
+    public int threads() {
+        return helpers.size() + 1;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Returns the share of pawn structure lookups answered from the pawn
+     * tables, over every thread and every search so far.
+     *
+     * @return Hits per probe from 0 to 1.
+     */
+    public double pawnTableHitRate() {
+        long hits = main.getPawnTable().getHits();
+        long probes = hits + main.getPawnTable().getMisses();
+        for (Searcher helper : helpers) {
+            hits += helper.getPawnTable().getHits();
+            probes += helper.getPawnTable().getHits() + helper.getPawnTable().getMisses();
+        }
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Measures how the node rate scales with the number of threads by
+     * searching the same position for a fixed time with 1, 2, 4 ... up to
+     * maxThreads threads, each run with a fresh table.
+     *
+     * @param board The position to search.
+     * @param maxThreads The largest thread count to try.
+     * @param millis The time per run.
+     * @param hashMegabytes The table size for each run.
+     * @return One line per thread count: threads, nodes per second, and the
+     * speed-up over one thread.
+     */
+    public static List<String> scalingReport(ChessBoard board, int maxThreads, long millis, int hashMegabytes) {
+        List<String> lines = new ArrayList<>();
+        long baseNps = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads
+                ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            try (ParallelSearch search = new ParallelSearch(threads, hashMegabytes)) {
+                SearchResult result = search.search(board, Searcher.MAX_PLY, 0, millis);
+                long nps = result.nodes() * 1000 / Math.max(1, result.timeMillis());
+                if (threads == 1) {
+                    baseNps = nps;
+                }
+                lines.add(String.format("threads %d nps %d speedup %.2f depth %d",
+                        threads, nps, baseNps == 0 ? 0.0 : (double) nps / baseNps, result.depth()));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Shuts down the helper threads.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitHelper(Future<SearchResult> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();  // A failed helper only costs its share of the work
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: PawnTable
+ *
+ * A fixed-size cache of pawn structure scores, keyed by the pawn key of a
+ * position. Pawns move rarely, so during a search most positions share their
+ * pawn skeleton with one evaluated before and the score is found here instead
+ * of recomputed.
+ *
+ * The table is direct-mapped: each key has one slot, and a new skeleton
+ * simply replaces whatever was there. Each slot is two longs, the pawn key and
+ * the packed midgame and endgame scores. An untouched slot holds key 0 with
+ * score 0, which is also the correct entry for a position without pawns.
+ *
+ * A PawnTable belongs to one searcher and one thread; unlike the
+ * transposition table it is not shared.
+ */
+package com.george.search;
+
+import com.george.board.Position;
+import java.util.Arrays;
+
+public class PawnTable {
+
+    // Slot count used by Searcher
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    private final long[] scores;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a table.
+     *
+     * @param entries The number of slots, at least 1; rounded down to a power
+     * of two.
+     */
+    public PawnTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Pawn table needs at least 1 entry: " + entries);
+        }
+        int size = Integer.highestOneBit(entries);
+        this.keys = new long[size];
+        this.scores = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the pawn structure score of a position, evaluating it and
+     * storing the result if the table does not hold it.
+     *
+     * @param position The position.
+     * @return The packed score; decode it with midgame() and endgame().
+     */
+    public long probe(Position position) {
+        long key = position.pawnKey();
+        int index = (int) key & mask;
+        if (keys[index] == key) {
+            hits++;
+            return scores[index];
+        }
+        misses++;
+        long score = Evaluator.pawnStructure(position.pieces(1), position.pieces(-1));
+        keys[index] = key;
+        scores[index] = score;
+        return score;
+    }
+
+    /**
+     * Empties the table and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(scores, 0L);
+        hits = 0;
+        misses = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the share of probes answered from the table.
+     *
+     * @return Hits per probe from 0 to 1, or 0 before the first probe.
+     */
+    public double hitRate() {
+        long probes = hits + misses;
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Packs a midgame and an endgame score into one long.
+     *
+     * @param midgame The midgame score.
+     * @param endgame The endgame score.
+     * @return The packed score.
+     */
+    public static long pack(int midgame, int endgame) {
+        return ((long) midgame << 32) | (endgame & 0xFFFFFFFFL);
+    }
+
+    public static int midgame(long score) {
+        return (int) (score >> 32);
+    }
+
+    public static int endgame(long score) {
+        return (int) score;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: SearchResult
+ *
+ * The outcome of a search, or of one completed iteration of it: the best
+ * move, its score and the principal variation that leads to that score.
+ */
+package com.george.search;
+
+import com.george.board.Move;
+
+/**
+ * @param move The best move (see Move), or Move.NONE if there is no legal move.
+ * @param score The score in centipawns from the side to move's point of view;
+ * mates are within Searcher.MAX_PLY of +/- Searcher.MATE.
+ * @param depth The depth of the last completed iteration.
+ * @param nodes The nodes searched, including quiescence nodes.
+ * @param timeMillis The time the search took.
+ * @param pv The principal variation, starting with the best move.
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long timeMillis, int[] pv) {
+
+    /**
+     * Determines whether the score is a forced mate for either side.
+     *
+     * @return True if a mate was found.
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Searcher.MATE - Searcher.MAX_PLY;
+    }
+
+    /**
+     * Returns the distance to mate in moves (not plies).
+     *
+     * @return Positive if the side to move mates, negative if it is mated, 0
+     * if the score is not a mate.
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        return score > 0 ? (Searcher.MATE - score + 1) / 2 : -(Searcher.MATE + score) / 2;
+    }
+
+    public long nodesPerSecond() {
+        return timeMillis == 0 ? nodes * 1000 : nodes * 1000 / timeMillis;
+    }
+
+    /**
+     * Returns the best move in UCI notation.
+     *
+     * @return The move, or "(none)" if there was no legal move.
+     */
+    public String bestMoveUci() {
+        return move == Move.NONE ? "(none)" : Move.toUci(move);
+    }
+
+    /**
+     * Returns the principal variation in UCI notation.
+     *
+     * @return The moves separated by spaces.
+     */
+    public String pvUci() {
+        StringBuilder sb = new StringBuilder();
+        for (int m : pv) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(Move.toUci(m));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        String scoreText = isMate() ? "mate " + mateIn() : "cp " + score;
+        return "depth " + depth + " score " + scoreText + " nodes " + nodes
+                + " nps " + nodesPerSecond() + " time " + timeMillis + " pv " + pvUci();
+    }
+}
@@ -0,0 +1,603 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: Searcher
+ *
+ * An in-process alpha-beta search over the legal moves of a ChessBoard. It
+ * deepens iteratively from depth 1, so a result is always available when a
+ * node or time limit stops it, and each iteration searches the principal
+ * variation of the previous one first.
+ *
+ * - Quiescence search resolves captures and promotions at the leaves, so
+ *   positions are not evaluated in the middle of an exchange.
+ * - Null-move pruning (optional) skips the move of the side to move in quiet
+ *   positions; if the opponent still cannot get below beta, the node is cut.
+ * - Checks are extended by one ply, and repetitions and the fifty-move rule
+ *   score as draws.
+ * - A transposition table, which may be shared with other searchers, cuts
+ *   off positions already searched deeply enough and supplies a best move.
+ * - Moves are ordered principal variation first, then the transposition table
+ *   move, then captures by most valuable victim / least valuable attacker,
+ *   then two killer moves per ply.
+ * - Pawn structure scores are cached in a pawn table of the searcher's own,
+ *   keyed by the pawn key of the position.
+ *
+ * The searcher works on its own copy of the position and reuses fixed
+ * buffers, so a search allocates nothing but one result per completed
+ * iteration: the SearchResult and a copy of its principal variation, which
+ * the caller may keep. A Searcher belongs to one thread; stop() may be called
+ * from any thread.
+ */
+package com.george.search;
+
+import com.george.board.ChessBoard;
+import com.george.board.Move;
+import com.george.board.MoveGenerator;
+import com.george.board.Position;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+public class Searcher {
+
+    // Score of being mated at the root; mate in n plies scores MATE - n
+    public static final int MATE = 32000;
+    public static final int INFINITE = 32001;
+
+    // Deepest ply the search reaches, quiescence included
+    public static final int MAX_PLY = 64;
+
+    // Limits are checked every this many nodes (plus one)
+    private static final int CHECK_INTERVAL = 1023;
+
+    // Transposition table size used by the no-argument constructor
+    public static final int DEFAULT_HASH_MB = 16;
+
+    private static final int PV_BONUS = 1 << 21;
+    private static final int TT_MOVE_BONUS = 1 << 20;
+    private static final int CAPTURE_BONUS = 1 << 16;
+    private static final int KILLER_BONUS = 1 << 12;
+
+    // Passed to scoreMoves instead of a table move in quiescence search
+    private static final int QUIESCENCE = -1;
+
+    private final Position position = new Position();
+    private final TranspositionTable table;
+    private final PawnTable pawnTable = new PawnTable(PawnTable.DEFAULT_ENTRIES);
+    private final int[] moves = new int[MAX_PLY * MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MAX_PLY * MoveGenerator.MAX_MOVES];
+
+    // Triangular principal variation table: pvTable[ply] holds the line from ply
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    // The principal variation of the last completed iteration, tried first
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+
+    // Lazy SMP helpers skip some depths so that threads spread over several
+    // depths at once (the pattern follows Stockfish's former skip tables)
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+    private int helperIndex;
+
+    // False when the owner of a shared table starts each search generation
+    private boolean agesTable = true;
+
+    private boolean nullMovePruning = true;
+    private Consumer<SearchResult> listener;
+
+    private volatile boolean stopRequested;
+    private BooleanSupplier stopSignal = () -> false;
+    private boolean stopped;
+    private boolean limitsActive;
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private long startNanos;
+
+    /**
+     * Creates a searcher with its own transposition table of DEFAULT_HASH_MB.
+     */
+    public Searcher() {
+        this(new TranspositionTable(DEFAULT_HASH_MB));
+    }
+
+    /**
+     * Creates a searcher that uses the given transposition table, which other
+     * searchers, including ones on other threads, may use at the same time.
+     *
+     * @param table The transposition table.
+     */
+    public Searcher(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Returns this searcher's pawn structure cache. Its counters add up over
+     * every search the searcher has run.
+     *
+     * @return The pawn table.
+     */
+    public PawnTable getPawnTable() {
+        return pawnTable;
+    }
+
+    /**
+     * Makes this searcher a Lazy SMP helper. Helper n (from 1) skips some
+     * iterations according to its index, so helpers work on different depths
+     * and fill the shared table with results the main searcher can use.
+     *
+     * @param index 0 for a main searcher, 1 or more for helpers.
+     */
+    void setHelperIndex(int index) {
+        this.helperIndex = index;
+    }
+
+    /**
+     * Sets a condition checked along with the limits that stops the search
+     * when true. Unlike stop(), it cannot be missed by a search that has not
+     * started yet, since search() does not reset it.
+     *
+     * @param stopSignal The condition.
+     */
+    void setStopSignal(BooleanSupplier stopSignal) {
+        this.stopSignal = stopSignal;
+    }
+
+    /**
+     * Sets whether search() starts a new generation in the transposition
+     * table. A ParallelSearch turns this off for its searchers and ages the
+     * shared table once per search itself, so the age does not advance once
+     * per thread.
+     *
+     * @param agesTable True to call newSearch() on the table in search().
+     */
+    void setAgesTable(boolean agesTable) {
+        this.agesTable = agesTable;
+    }
+
+    /**
+     * Returns the nodes searched so far by the current or last search.
+     *
+     * @return The node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Turns null-move pruning on or off. It is on by default; turning it off
+     * makes the search slower but immune to zugzwang errors.
+     *
+     * @param enabled True to prune with null moves.
+     */
+    public void setNullMovePruning(boolean enabled) {
+        this.nullMovePruning = enabled;
+    }
+
+    /**
+     * Registers a listener called with the result of every completed
+     * iteration, on the searching thread.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. The search returns
+     * the result of its last completed iteration.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Searches the position on a board for the side to move. The board itself
+     * is not changed. Depth 1 always completes, so even a tiny limit returns
+     * a legal move; e.g. a depth 1 search answers mate-in-one queries. Only
+     * the stop signal of a Lazy SMP helper can cut depth 1 short, in which
+     * case the result is null.
+     *
+     * @param board The board to search.
+     * @param maxDepth The deepest iteration to run, at most MAX_PLY - 1.
+     * @param maxNodes The node limit, or 0 for none.
+     * @param maxMillis The time limit in milliseconds, or 0 for none.
+     * @return The result of the deepest completed iteration.
+     */
+    public SearchResult search(ChessBoard board, int maxDepth, long maxNodes, long maxMillis) {
+        position.copyFrom(board.getPosition());
+        startNanos = System.nanoTime();
+        this.maxNodes = maxNodes;
+        this.deadline = maxMillis > 0 ? startNanos + maxMillis * 1_000_000 : 0;
+        stopRequested = false;
+        stopped = false;
+        limitsActive = false;
+        nodes = 0;
+        previousPvLength = 0;
+        if (agesTable) {
+            table.newSearch();
+        }
+        for (int[] killer : killers) {
+            Arrays.fill(killer, Move.NONE);
+        }
+
+        SearchResult result = null;
+        int depthLimit = Math.max(1, Math.min(maxDepth, MAX_PLY - 1));
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            if (skipDepth(depth)) {
+                continue;
+            }
+            int score = negamax(depth, -INFINITE, INFINITE, 0, true);
+            if (stopped) {
+                break;
+            }
+            previousPvLength = extendPvFromTable();
+            result = new SearchResult(previousPvLength > 0 ? previousPv[0] : Move.NONE,
+                    score, depth, nodes, elapsedMillis(), Arrays.copyOf(previousPv, previousPvLength));
+            if (listener != null) {
+                listener.accept(result);
+            }
+            // From here on the limits may cut an iteration short
+            limitsActive = true;
+            if (result.move() == Move.NONE || (result.isMate() && Math.abs(result.mateIn()) * 2 <= depth)) {
+                break;
+            }
+            // The next iteration would not finish in the time that is left
+            if (deadline != 0 && System.nanoTime() > startNanos + (deadline - startNanos) / 2) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private boolean skipDepth(int depth) {
+        if (helperIndex == 0) {
+            return false;
+        }
+        int i = (helperIndex - 1) % SKIP_SIZE.length;
+        return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+    }
+
+    // Alpha-beta search of the position to the given depth
+    private int negamax(int depth, int alpha, int beta, int ply, boolean allowNull) {
+        pvLength[ply] = 0;
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply > 0 && (position.halfmoveClock() >= 100 || position.isRepetition())) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(position, pawnTable);
+        }
+
+        int side = position.sideToMove();
+        boolean inCheck = position.isInCheck(side);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+
+        long key = position.key();
+        long entry = table.probe(key);
+        int ttMove = Move.NONE;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            ttMove = TranspositionTable.move(entry);
+            // The root always searches, so that it has a move and a PV to report
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+
+        if (nullMovePruning && allowNull && !inCheck && ply > 0 && depth >= 3
+                && hasPieces(side) && Evaluator.evaluate(position, pawnTable) >= beta) {
+            int reduction = depth > 6 ? 3 : 2;
+            position.makeNullMove();
+            int score = -negamax(depth - 1 - reduction, -beta, -beta + 1, ply + 1, false);
+            position.unmakeNullMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                // An unproven mate from a null-move search is not trusted
+                return score >= MATE - MAX_PLY ? beta : score;
+            }
+        }
+
+        int start = ply * MoveGenerator.MAX_MOVES;
+        int end = MoveGenerator.generateLegal(position, side, moves, start);
+        if (end == start) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(start, end, ply, ttMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITE;
+        int bestMove = Move.NONE;
+        for (int i = start; i < end; i++) {
+            int move = pickMove(i, end);
+            position.makeMove(move);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!Move.isCapture(move)) {
+                            storeKiller(ply, move);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, scoreToTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // Searches captures and promotions until the position is quiet
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        int side = position.sideToMove();
+        boolean inCheck = position.isInCheck(side);
+        int standPat = Evaluator.evaluate(position, pawnTable);
+        if (ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        // In check every evasion is searched, since standing pat is not an option
+        if (!inCheck) {
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+
+        int start = ply * MoveGenerator.MAX_MOVES;
+        int end = MoveGenerator.generateLegal(position, side, moves, start);
+        if (end == start) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(start, end, ply, QUIESCENCE);
+
+        int best = inCheck ? -INFINITE : standPat;
+        for (int i = start; i < end; i++) {
+            int move = pickMove(i, end);
+            if (!inCheck && !Move.isCapture(move) && Move.promotion(move) == 0) {
+                break;  // Quiet moves are sorted after every capture and promotion
+            }
+            position.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // Gives every move an ordering score in the parallel scores array. In
+    // quiescence (ttMove == QUIESCENCE) quiet moves get no hints, so every
+    // capture and promotion sorts before every quiet move.
+    private void scoreMoves(int start, int end, int ply, int ttMove) {
+        boolean quietHints = ttMove != QUIESCENCE;
+        int pvMove = quietHints && ply < previousPvLength && followsPreviousPv(ply)
+                ? previousPv[ply] : Move.NONE;
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            int score;
+            if (move == pvMove) {
+                score = PV_BONUS;
+            } else if (move == ttMove) {
+                score = TT_MOVE_BONUS;
+            } else if (Move.isCapture(move) || Move.promotion(move) != 0) {
+                int victim = Move.isEnPassant(move) ? 1 : Math.abs(position.pieceAt(Move.to(move)));
+                int attacker = Math.abs(position.pieceAt(Move.from(move)));
+                score = CAPTURE_BONUS + Evaluator.PIECE_VALUES[victim] * 8
+                        - Evaluator.PIECE_VALUES[attacker] / 8
+                        + Evaluator.PIECE_VALUES[Move.promotion(move)];
+            } else if (quietHints && (move == killers[ply][0] || move == killers[ply][1])) {
+                score = KILLER_BONUS;
+            } else {
+                score = 0;
+            }
+            scores[i] = score;
+        }
+    }
+
+    // Whether the moves made so far are the previous principal variation
+    private boolean followsPreviousPv(int ply) {
+        int base = position.historySize() - ply;
+        for (int i = 0; i < ply; i++) {
+            if (position.historyMove(base + i) != previousPv[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Moves the best-scored remaining move to index i (selection sort step)
+    private int pickMove(int i, int end) {
+        int best = i;
+        for (int j = i + 1; j < end; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            int move = moves[i];
+            moves[i] = moves[best];
+            moves[best] = move;
+            int score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        return moves[i];
+    }
+
+    // Copies the root principal variation into previousPv and returns its
+    // length. Table cutoffs end it early, so the table's best moves are
+    // followed from where it ends to show the full line.
+    private int extendPvFromTable() {
+        int[] line = previousPv;
+        System.arraycopy(pvTable[0], 0, line, 0, pvLength[0]);
+        int length = 0;
+        while (length < pvLength[0]) {
+            position.makeMove(line[length++]);
+        }
+        while (length < MAX_PLY - 1 && !position.isRepetition()) {
+            long entry = table.probe(position.key());
+            int move = entry == TranspositionTable.NO_ENTRY ? Move.NONE : TranspositionTable.move(entry);
+            if (move == Move.NONE || !isLegal(move, length)) {
+                break;
+            }
+            position.makeMove(move);
+            line[length++] = move;
+        }
+        for (int i = 0; i < length; i++) {
+            position.unmakeMove();
+        }
+        return length;
+    }
+
+    // Whether a move from the table is legal here; another position may share its key
+    private boolean isLegal(int move, int ply) {
+        int start = ply * MoveGenerator.MAX_MOVES;
+        int end = MoveGenerator.generateLegal(position, position.sideToMove(), moves, start);
+        for (int i = start; i < end; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Mate scores are stored relative to the node, not the root, so that they
+    // stay correct when the position is reached at a different ply
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    // Null moves are unsafe with only king and pawns left (zugzwang)
+    private boolean hasPieces(int side) {
+        int sign = side == Position.WHITE ? 1 : -1;
+        long kingAndPawns = position.pieces(sign) | position.pieces(6 * sign);
+        return (position.colour(side) & ~kingAndPawns) != 0;
+    }
+
+    private void checkLimits() {
+        // Helpers stop at once when the main search is over, whatever depth
+        if (stopSignal.getAsBoolean()) {
+            stopped = true;
+            return;
+        }
+        if (!limitsActive) {
+            return;
+        }
+        if (stopRequested
+                || (maxNodes > 0 && nodes >= maxNodes)
+                || (deadline != 0 && System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
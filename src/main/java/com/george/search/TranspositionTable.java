@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: TranspositionTable
+ *
+ * A fixed-size hash table of search results, shared by every thread that
+ * searches with it and accessed without locks.
+ *
+ * The table is one long[] sized from a megabyte budget. Entries are grouped in
+ * buckets of two; each entry is two longs, the packed data and the position
+ * key XORed with that data. A reader accepts an entry only if the two longs
+ * XOR back to its own key, so an entry torn by two threads writing at once, or
+ * left by a different position, is simply a miss. Racing writers can lose an
+ * entry but never produce a wrong one.
+ *
+ * Packed data layout:
+ *   bits  0-19  best move (see Move)
+ *   bits 20-35  score (16-bit two's complement)
+ *   bits 36-43  depth
+ *   bits 44-45  bound (LOWER, UPPER or EXACT)
+ *   bits 46-51  age (the search generation that stored it)
+ *   bit  52     always set, so stored data is never 0
+ *
+ * Replacement: an entry for the same position is overwritten; otherwise the
+ * bucket entry worth least is replaced, where worth is depth minus a penalty
+ * for each search generation the entry has missed.
+ */
+package com.george.search;
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+
+    // Bound types: the stored score is a lower bound, an upper bound, or exact
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    // Returned by probe when the table holds nothing for a key
+    public static final long NO_ENTRY = 0;
+
+    private static final int BUCKET_LONGS = 4;
+    private static final long VALID = 1L << 52;
+    private static final int AGE_MASK = 63;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * Creates a table using at most the given amount of memory.
+     *
+     * @param megabytes The budget in MB, at least 1. The table uses the
+     * largest power-of-two number of buckets that fits.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB: " + megabytes);
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (BUCKET_LONGS * Long.BYTES));
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_LONGS));
+        this.table = new long[(int) buckets * BUCKET_LONGS];
+        this.bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Starts a new search generation. Entries from older generations become
+     * the first candidates for replacement. Call it once per search, from one
+     * thread, before any thread searches with the table.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The Zobrist key of the position.
+     * @return The packed data (decode it with move(), score(), depth() and
+     * bound()), or NO_ENTRY if the table holds nothing for the key.
+     */
+    public long probe(long key) {
+        int base = bucketIndex(key);
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != NO_ENTRY) {
+                return data;
+            }
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param key The Zobrist key of the position.
+     * @param move The best move, or Move.NONE.
+     * @param score The score, already adjusted for mate distance by the caller.
+     * @param depth The depth searched, 0-255.
+     * @param bound LOWER, UPPER or EXACT.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = bucketIndex(key);
+        int currentAge = age;
+        int target = base;
+        int worst = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key || data == NO_ENTRY) {
+                // Keep the old best move if the new result has none
+                if (move == 0 && data != NO_ENTRY) {
+                    move = move(data);
+                }
+                target = i;
+                break;
+            }
+            int staleness = (currentAge - age(data)) & AGE_MASK;
+            int worth = depth(data) - 8 * staleness;
+            if (worth < worst) {
+                worst = worth;
+                target = i;
+            }
+        }
+
+        long data = (move & 0xFFFFFL)
+                | ((score & 0xFFFFL) << 20)
+                | ((long) (depth & 0xFF) << 36)
+                | ((long) bound << 44)
+                | ((long) currentAge << 46)
+                | VALID;
+        table[target] = key ^ data;
+        table[target + 1] = data;
+    }
+
+    /**
+     * Estimates how full the table is from a sample of its first buckets.
+     *
+     * @return Entries of the current generation per thousand, as in UCI
+     * "hashfull".
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, table.length / 2);
+        int currentAge = age;
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[2 * i + 1];
+            if (data != NO_ENTRY && age(data) == currentAge) {
+                used++;
+            }
+        }
+        return sample == 0 ? 0 : used * 1000 / sample;
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     *
+     * @return Twice the number of buckets.
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 20);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 36) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 44) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 46) & AGE_MASK;
+    }
+
+    private int bucketIndex(long key) {
+        // The low bits of the key choose the bucket; the whole key verifies it
+        return ((int) key & bucketMask) * BUCKET_LONGS;
+    }
+}
@@ -0,0 +1,253 @@
+package com.george.stockfish;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of search results keyed by position hash and search limits, so a
+ * position searched before can be answered without asking the engine again.
+ *
+ * The in-memory part is a least-recently-used map holding at most maxEntries
+ * results. Optionally it is backed by a memory-mapped file laid out as a
+ * fixed-size hash table of 32-byte records; results written there survive a
+ * restart, and a colliding result simply replaces the older one in its slot.
+ *
+ * Keys are the 64-bit Zobrist hash from ChessBoard.hash(), which does not
+ * cover repetitions or the fifty-move counter, and the exact "go" arguments.
+ * Results searched with different engine options should use separate caches.
+ * All methods are thread-safe.
+ */
+public class AnalysisCache implements AutoCloseable {
+
+    private static final int FILE_MAGIC = 0x41434831;  // "ACH1"
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 32;
+    private static final int MATE_FLAG = 1;
+
+    private record Key(long position, String limits) {
+    }
+
+    private final Map<Key, BestMove> entries;
+    private final FileChannel channel;
+    private final MappedByteBuffer file;
+    private final int fileSlots;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache held in memory only.
+     *
+     * @param maxEntries The number of results kept before the least recently
+     * used one is evicted.
+     */
+    public AnalysisCache(int maxEntries) {
+        this.entries = newLruMap(maxEntries);
+        this.channel = null;
+        this.file = null;
+        this.fileSlots = 0;
+    }
+
+    /**
+     * Creates a cache backed by a memory-mapped file, creating the file if
+     * needed. A file written with a different number of slots, or not by this
+     * class, is cleared.
+     *
+     * @param maxEntries The number of results kept in memory.
+     * @param path The file holding persisted results.
+     * @param fileSlots The number of records in the file, rounded up to a
+     * power of two.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public AnalysisCache(int maxEntries, Path path, int fileSlots) throws IOException {
+        this.entries = newLruMap(maxEntries);
+        this.fileSlots = Integer.highestOneBit(Math.max(1, fileSlots - 1)) << 1;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = HEADER_BYTES + (long) this.fileSlots * RECORD_BYTES;
+            this.file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (file.getInt(0) != FILE_MAGIC || file.getInt(4) != this.fileSlots) {
+            for (int i = 0; i < file.capacity(); i += 8) {
+                file.putLong(i, 0L);
+            }
+            file.putInt(0, FILE_MAGIC);
+            file.putInt(4, this.fileSlots);
+        }
+    }
+
+    /**
+     * Looks up a result, first in memory and then in the backing file.
+     *
+     * @param positionKey The Zobrist hash of the position.
+     * @param limits The search limits, i.e. the arguments of "go".
+     * @return The cached result, or null on a miss.
+     */
+    public synchronized BestMove get(long positionKey, String limits) {
+        Key key = new Key(positionKey, limits);
+        BestMove result = entries.get(key);
+        if (result == null && file != null) {
+            result = readRecord(positionKey, limits);
+            if (result != null) {
+                entries.put(key, result);
+            }
+        }
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Stores a result. Results without a move (mate or stalemate on the board)
+     * are not cached since they are cheap for the engine to find.
+     *
+     * @param positionKey The Zobrist hash of the position.
+     * @param limits The search limits, i.e. the arguments of "go".
+     * @param result The engine's answer.
+     */
+    public synchronized void put(long positionKey, String limits, BestMove result) {
+        if (!result.hasMove()) {
+            return;
+        }
+        entries.put(new Key(positionKey, limits), result);
+        if (file != null) {
+            writeRecord(positionKey, limits, result);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Flushes the backing file, if any, and closes it. The cache must not be
+     * used afterwards.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (file != null) {
+            file.force();
+            channel.close();
+        }
+    }
+
+    private static Map<Key, BestMove> newLruMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, BestMove> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Record layout: position key, limits key, move, ponder, score, depth, flags
+    private int recordOffset(long positionKey, long limitsKey) {
+        long mixed = (positionKey ^ limitsKey) * 0x9E3779B97F4A7C15L;
+        return HEADER_BYTES + (int) (mixed >>> 32 & (fileSlots - 1)) * RECORD_BYTES;
+    }
+
+    private BestMove readRecord(long positionKey, String limits) {
+        long limitsKey = limitsKey(limits);
+        int offset = recordOffset(positionKey, limitsKey);
+        int move = file.getInt(offset + 16);
+        if (move == 0 || file.getLong(offset) != positionKey || file.getLong(offset + 8) != limitsKey) {
+            return null;
+        }
+        String bestMove = decodeMove(move);
+        String ponder = decodeMove(file.getInt(offset + 20));
+        int score = file.getInt(offset + 24);
+        int depth = file.getShort(offset + 28);
+        boolean mate = (file.getShort(offset + 30) & MATE_FLAG) != 0;
+
+        // Rebuild the info the result was cached with, so callers see the same shape
+        SearchInfo info = new SearchInfo();
+        info.parse("info depth " + depth + " score " + (mate ? "mate " : "cp ") + score
+                + " pv " + bestMove + (ponder != null ? " " + ponder : ""));
+        return new BestMove(bestMove, ponder, info);
+    }
+
+    private void writeRecord(long positionKey, String limits, BestMove result) {
+        int move = encodeMove(result.move());
+        if (move == 0) {
+            return;
+        }
+        long limitsKey = limitsKey(limits);
+        int offset = recordOffset(positionKey, limitsKey);
+        SearchInfo info = result.info();
+        file.putLong(offset, positionKey);
+        file.putLong(offset + 8, limitsKey);
+        file.putInt(offset + 16, move);
+        file.putInt(offset + 20, encodeMove(result.ponder()));
+        file.putInt(offset + 24, info != null ? info.score() : 0);
+        file.putShort(offset + 28, (short) (info != null ? info.depth() : 0));
+        file.putShort(offset + 30, (short) (info != null && info.isMate() ? MATE_FLAG : 0));
+    }
+
+    // 64-bit FNV-1a hash of the limits string
+    private static long limitsKey(String limits) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < limits.length(); i++) {
+            hash = (hash ^ limits.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // Packs a UCI move as from | to << 6 | promotion << 12 | 1 << 15; 0 means none
+    private static int encodeMove(String move) {
+        if (move == null || move.length() < 4 || move.length() > 5) {
+            return 0;
+        }
+        int from = uciSquare(move.charAt(0), move.charAt(1));
+        int to = uciSquare(move.charAt(2), move.charAt(3));
+        int promotion = move.length() == 5 ? "nbrq".indexOf(move.charAt(4)) + 1 : 0;
+        if (from < 0 || to < 0 || (move.length() == 5 && promotion == 0)) {
+            return 0;
+        }
+        return from | to << 6 | promotion << 12 | 1 << 15;
+    }
+
+    private static String decodeMove(int move) {
+        if (move == 0) {
+            return null;
+        }
+        int from = move & 63;
+        int to = move >>> 6 & 63;
+        int promotion = move >>> 12 & 7;
+        StringBuilder sb = new StringBuilder(5);
+        sb.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+        sb.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+        if (promotion > 0) {
+            sb.append("nbrq".charAt(promotion - 1));
+        }
+        return sb.toString();
+    }
+
+    private static int uciSquare(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return -1;
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+}
@@ -0,0 +1,50 @@
+package com.george.stockfish;
+
+/**
+ * The result of a search: the move the engine chose and, if it sent one, the
+ * reply it expects (its ponder move). Moves are in UCI notation, e.g. "e2e4".
+ *
+ * @param move The best move, or "(none)" if the side to move has no moves.
+ * @param ponder The expected reply, or null if the engine did not send one.
+ * @param info The last scored info line of the main variation, or null if the
+ * engine sent none.
+ */
+public record BestMove(String move, String ponder, SearchInfo info) {
+
+    public BestMove(String move, String ponder) {
+        this(move, ponder, null);
+    }
+
+    /**
+     * Parses a "bestmove &lt;move&gt; [ponder &lt;move&gt;]" line.
+     *
+     * @param line The bestmove line as sent by the engine.
+     * @return The parsed result.
+     */
+    public static BestMove parse(String line) {
+        return parse(line, null);
+    }
+
+    /**
+     * Parses a bestmove line and attaches the search info that led to it.
+     *
+     * @param line The bestmove line as sent by the engine.
+     * @param info The final info of the search, or null.
+     * @return The parsed result.
+     */
+    public static BestMove parse(String line, SearchInfo info) {
+        String[] parts = line.trim().split("\\s+");
+        String move = parts.length > 1 ? parts[1] : null;
+        String ponder = parts.length > 3 && parts[2].equals("ponder") ? parts[3] : null;
+        return new BestMove(move, ponder, info);
+    }
+
+    /**
+     * Determines whether the engine found a move.
+     *
+     * @return False if the position had no legal moves.
+     */
+    public boolean hasMove() {
+        return move != null && !move.equals("(none)");
+    }
+}
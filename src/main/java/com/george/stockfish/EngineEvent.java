@@ -0,0 +1,61 @@
+package com.george.stockfish;
+
+/**
+ * One line of engine output, tagged with the kind of UCI message it is.
+ */
+public class EngineEvent {
+
+    /**
+     * The kinds of UCI message the connector distinguishes.
+     */
+    public enum Type {
+        ID, OPTION, UCI_OK, READY_OK, INFO, BEST_MOVE, OTHER
+    }
+
+    private final Type type;
+    private final String line;
+
+    public EngineEvent(Type type, String line) {
+        this.type = type;
+        this.line = line;
+    }
+
+    /**
+     * Classifies a raw line of engine output by its first token.
+     *
+     * @param line The line as read from the engine.
+     * @return The tagged event.
+     */
+    public static EngineEvent parse(String line) {
+        Type type;
+        if (line.startsWith("info")) {
+            type = Type.INFO;
+        } else if (line.startsWith("bestmove")) {
+            type = Type.BEST_MOVE;
+        } else if (line.equals("readyok")) {
+            type = Type.READY_OK;
+        } else if (line.equals("uciok")) {
+            type = Type.UCI_OK;
+        } else if (line.startsWith("id ")) {
+            type = Type.ID;
+        } else if (line.startsWith("option ")) {
+            type = Type.OPTION;
+        } else {
+            type = Type.OTHER;
+        }
+        return new EngineEvent(type, line);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return type + ": " + line;
+    }
+}
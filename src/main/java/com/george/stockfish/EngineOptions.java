@@ -0,0 +1,262 @@
+package com.george.stockfish;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The UCI options one engine process runs with, and where to find the
+ * engine executable.
+ *
+ * The options Stockfish's throughput depends on most have typed setters:
+ * Threads, Hash, MultiPV and NumaPolicy. Anything else can be set by name.
+ * Options left unset are not sent, so the engine keeps its own default.
+ *
+ * Options can also be read from a profile, a properties file such as:
+ * <pre>
+ *   engine.path=/opt/stockfish/stockfish
+ *   Threads=4
+ *   Hash=512
+ *   MultiPV=1
+ *   NumaPolicy=auto
+ *   Move\ Overhead=30
+ * </pre>
+ * Spaces in option names are escaped with a backslash, as in any properties
+ * file. Profiles make it easy to keep one layout with a few engines of many
+ * threads each and another with many single-threaded engines, and compare
+ * them.
+ */
+public class EngineOptions {
+
+    // The profile ChessGame reads from the working directory, if present
+    public static final String DEFAULT_PROFILE = "engine.properties";
+
+    // Overrides the engine executable for every connector without a profile
+    public static final String ENGINE_PATH_VARIABLE = "STOCKFISH_PATH";
+
+    private static final String ENGINE_PATH_KEY = "engine.path";
+
+    private String enginePath = defaultEnginePath();
+    private int threads;
+    private int hashMb;
+    private int multiPv;
+    private String numaPolicy;
+    private final Map<String, String> others = new LinkedHashMap<>();
+
+    /**
+     * Reads options from a profile. The key engine.path sets the executable;
+     * every other key is an option name.
+     *
+     * @param profile The properties file to read.
+     * @return The options from the profile.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a typed option has an invalid value.
+     */
+    public static EngineOptions load(Path profile) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(profile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        EngineOptions options = new EngineOptions();
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name).trim();
+            if (name.equals(ENGINE_PATH_KEY)) {
+                options.enginePath(value);
+            } else {
+                options.set(name, value);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Reads options from a profile if it exists, and uses the defaults
+     * otherwise.
+     *
+     * @param profile The properties file to read.
+     * @return The options from the profile, or default options.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public static EngineOptions loadIfPresent(Path profile) throws IOException {
+        return Files.isRegularFile(profile) ? load(profile) : new EngineOptions();
+    }
+
+    /**
+     * Returns the engine executable for this platform: the STOCKFISH_PATH
+     * environment variable if set, else the bundled Windows binary on
+     * Windows, else the binary built from the bundled sources (make -C
+     * stockfish/src build) if present, else "stockfish" from the PATH.
+     *
+     * @return The path or name of the engine executable.
+     */
+    public static String defaultEnginePath() {
+        String configured = System.getenv(ENGINE_PATH_VARIABLE);
+        if (configured != null && !configured.isBlank()) {
+            return configured;
+        }
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.contains("win")) {
+            return "stockfish/stockfish-windows-x86-64-avx2";
+        }
+        Path built = Path.of("stockfish", "src", "stockfish");
+        if (Files.isExecutable(built)) {
+            return built.toString();
+        }
+        return "stockfish";
+    }
+
+    public EngineOptions enginePath(String enginePath) {
+        this.enginePath = enginePath;
+        return this;
+    }
+
+    /**
+     * Sets the number of search threads.
+     *
+     * @param threads The thread count, at least 1.
+     * @return These options.
+     */
+    public EngineOptions threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the size of the transposition table.
+     *
+     * @param megabytes The hash size in MB, at least 1.
+     * @return These options.
+     */
+    public EngineOptions hash(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Hash must be at least 1 MB: " + megabytes);
+        }
+        this.hashMb = megabytes;
+        return this;
+    }
+
+    /**
+     * Sets how many principal variations the engine reports.
+     *
+     * @param lines The number of lines, at least 1.
+     * @return These options.
+     */
+    public EngineOptions multiPv(int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("MultiPV must be at least 1: " + lines);
+        }
+        this.multiPv = lines;
+        return this;
+    }
+
+    /**
+     * Sets how Stockfish binds its threads to NUMA nodes: "auto", "system",
+     * "hardware", "none" or an explicit CPU mapping.
+     *
+     * @param policy The policy.
+     * @return These options.
+     */
+    public EngineOptions numaPolicy(String policy) {
+        if (policy == null || policy.isBlank()) {
+            throw new IllegalArgumentException("NumaPolicy must not be empty");
+        }
+        this.numaPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Sets any option by its UCI name. The typed options are recognised by
+     * name and checked like their setters.
+     *
+     * @param name The option name, e.g. "Move Overhead".
+     * @param value The value, e.g. "30".
+     * @return These options.
+     * @throws IllegalArgumentException If a typed option has an invalid value.
+     */
+    public EngineOptions set(String name, String value) {
+        try {
+            switch (name) {
+                case "Threads" -> threads(Integer.parseInt(value));
+                case "Hash" -> hash(Integer.parseInt(value));
+                case "MultiPV" -> multiPv(Integer.parseInt(value));
+                case "NumaPolicy" -> numaPolicy(value);
+                default -> others.put(name, value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value, e);
+        }
+        return this;
+    }
+
+    public String getEnginePath() {
+        return enginePath;
+    }
+
+    /**
+     * Returns the number of search threads.
+     *
+     * @return The thread count, or 0 if left at the engine's default.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getHashMb() {
+        return hashMb;
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    public String getNumaPolicy() {
+        return numaPolicy;
+    }
+
+    /**
+     * Returns the setoption commands for every option that is set. NumaPolicy
+     * comes first and Threads before Hash, since Stockfish rebuilds its
+     * threads and reallocates its table when they change.
+     *
+     * @return The commands, in the order they should be sent.
+     */
+    public List<String> toCommands() {
+        List<String> commands = new ArrayList<>();
+        if (numaPolicy != null) {
+            commands.add(setOption("NumaPolicy", numaPolicy));
+        }
+        if (threads > 0) {
+            commands.add(setOption("Threads", Integer.toString(threads)));
+        }
+        if (hashMb > 0) {
+            commands.add(setOption("Hash", Integer.toString(hashMb)));
+        }
+        if (multiPv > 0) {
+            commands.add(setOption("MultiPV", Integer.toString(multiPv)));
+        }
+        for (Map.Entry<String, String> option : others.entrySet()) {
+            commands.add(setOption(option.getKey(), option.getValue()));
+        }
+        return commands;
+    }
+
+    @Override
+    public String toString() {
+        return enginePath + " " + toCommands();
+    }
+
+    private static String setOption(String name, String value) {
+        return "setoption name " + name + " value " + value;
+    }
+}
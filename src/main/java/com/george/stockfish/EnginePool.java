@@ -0,0 +1,419 @@
+package com.george.stockfish;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of warm engine processes shared by many tasks.
+ *
+ * A task leases an engine, uses it, and closes the lease. On return the engine
+ * is reset with ucinewgame and checked with isready; an engine that has died
+ * or does not answer in time is replaced by a freshly started one, so a crash
+ * costs one task rather than the whole pool. The pool reports how many tasks
+ * are waiting and how long leases take to be granted. A task waiting for a
+ * lease gives up with an IllegalStateException when the pool is closed or
+ * when no engine is left because restarts kept failing.
+ *
+ * Typical use:
+ * <pre>
+ *   try (EnginePool.Lease lease = pool.lease()) {
+ *       StockfishConnector engine = lease.engine();
+ *       ...
+ *   }
+ * </pre>
+ */
+public class EnginePool implements AutoCloseable {
+
+    // How long a returned engine may take to answer readyok
+    private static final long RESET_TIMEOUT_MILLIS = 5000;
+
+    // How long a starting engine may take to answer uciok
+    private static final long HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+    // How often a waiting lease checks whether the pool was closed or lost
+    // all its engines
+    private static final long POLL_MILLIS = 100;
+
+    private final Supplier<StockfishConnector> factory;
+    private final EngineOptions options;
+    private final int size;
+    private final BlockingQueue<StockfishConnector> idle;
+    private final List<StockfishConnector> engines = new ArrayList<>();
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong leaseWaitNanos = new AtomicLong();
+    private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    /**
+     * Creates a pool of the bundled Stockfish engine.
+     *
+     * @param size The number of engine processes.
+     */
+    public EnginePool(int size) {
+        this(size, StockfishConnector::new);
+    }
+
+    /**
+     * Creates a pool whose engines come from a factory. The factory returns
+     * connectors that have not been started yet.
+     *
+     * @param size The number of engine processes.
+     * @param factory Creates a new, unstarted connector.
+     */
+    public EnginePool(int size, Supplier<StockfishConnector> factory) {
+        this(size, factory, null);
+    }
+
+    /**
+     * Creates a pool of engines that all run with the same options, e.g. from
+     * a tuning profile. Restarted engines get the options too.
+     *
+     * @param size The number of engine processes.
+     * @param options The engine path and UCI options of every engine.
+     */
+    public EnginePool(int size, EngineOptions options) {
+        this(size, () -> new StockfishConnector(options.getEnginePath()), options);
+    }
+
+    private EnginePool(int size, Supplier<StockfishConnector> factory, EngineOptions options) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.size = size;
+        this.factory = factory;
+        this.options = options;
+        this.idle = new LinkedBlockingQueue<>(size);
+    }
+
+    /**
+     * Starts every engine and waits until each has answered uciok and
+     * readyok.
+     *
+     * @throws IOException If an engine cannot be started.
+     */
+    public void start() throws IOException {
+        for (int i = 0; i < size; i++) {
+            StockfishConnector engine = launch();
+            synchronized (engines) {
+                engines.add(engine);
+            }
+            idle.add(engine);
+        }
+    }
+
+    /**
+     * Waits for an idle engine and leases it.
+     *
+     * @return The lease; close it to give the engine back.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws IllegalStateException If the pool is closed, or has no engines
+     * left because none could be restarted, before one becomes idle.
+     */
+    public Lease lease() throws InterruptedException {
+        checkOpen();
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            return granted(take(0), start);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits up to a time limit for an idle engine and leases it.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit The unit of the timeout.
+     * @return The lease; close it to give the engine back.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws TimeoutException If no engine became idle in time.
+     * @throws IllegalStateException If the pool is closed, or has no engines
+     * left because none could be restarted, before one becomes idle.
+     */
+    public Lease lease(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        checkOpen();
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            StockfishConnector engine = take(start + unit.toNanos(timeout));
+            if (engine == null) {
+                throw new TimeoutException("No engine became available in " + timeout + " " + unit);
+            }
+            return granted(engine, start);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of engine processes in the pool.
+     *
+     * @return The pool size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of tasks currently waiting for an engine.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns the number of engines not leased at the moment.
+     *
+     * @return The idle engine count.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getLeaseCount() {
+        return leases.get();
+    }
+
+    /**
+     * Returns the mean time tasks waited for a lease.
+     *
+     * @return The mean lease latency in microseconds.
+     */
+    public double getAverageLeaseLatencyMicros() {
+        long count = leases.get();
+        return count == 0 ? 0.0 : leaseWaitNanos.get() / 1000.0 / count;
+    }
+
+    /**
+     * Returns the longest time a task waited for a lease.
+     *
+     * @return The maximum lease latency in microseconds.
+     */
+    public double getMaxLeaseLatencyMicros() {
+        return maxLeaseWaitNanos.get() / 1000.0;
+    }
+
+    /**
+     * Returns how many engines were replaced because they died or stopped
+     * answering.
+     *
+     * @return The restart count.
+     */
+    public long getRestartCount() {
+        return restarts.get();
+    }
+
+    /**
+     * Stops every idle engine. Leases still open are not interrupted, but
+     * their engines are shut down when returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        StockfishConnector engine;
+        while ((engine = idle.poll()) != null) {
+            retire(engine);
+        }
+    }
+
+    /**
+     * Returns the number of engine processes that are running, leased or
+     * idle. It falls below size() when engines die and cannot be restarted.
+     *
+     * @return The live engine count.
+     */
+    public int getLiveCount() {
+        synchronized (engines) {
+            return engines.size();
+        }
+    }
+
+    // Waits for a healthy idle engine until the deadline (0 for none); null on timeout
+    private StockfishConnector take(long deadline) throws InterruptedException {
+        while (true) {
+            checkOpen();
+            if (getLiveCount() == 0) {
+                throw new IllegalStateException("Engine pool has no engines left; none could be restarted");
+            }
+            long wait = TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS);
+            if (deadline != 0) {
+                wait = Math.min(wait, deadline - System.nanoTime());
+                if (wait <= 0) {
+                    return null;
+                }
+            }
+            StockfishConnector engine = idle.poll(wait, TimeUnit.NANOSECONDS);
+            if (engine != null) {
+                engine = healthy(engine);
+                if (engine != null) {
+                    return engine;
+                }
+            }
+        }
+    }
+
+    private Lease granted(StockfishConnector engine, long start) {
+        long waited = System.nanoTime() - start;
+        leases.incrementAndGet();
+        leaseWaitNanos.addAndGet(waited);
+        maxLeaseWaitNanos.accumulateAndGet(waited, Math::max);
+        return new Lease(engine);
+    }
+
+    // Called when a lease is closed: reset the engine, or replace it if it is unhealthy
+    private void release(StockfishConnector engine, boolean broken) {
+        if (closed) {
+            retire(engine);
+            return;
+        }
+        StockfishConnector healthy = engine;
+        if (broken || !reset(engine)) {
+            healthy = replace(engine);
+        }
+        if (healthy != null) {
+            idle.add(healthy);
+            // close() may have drained the idle queue while this engine was being reset
+            if (closed && idle.remove(healthy)) {
+                retire(healthy);
+            }
+        }
+    }
+
+    // An idle engine about to be leased: replace it if its process has died
+    private StockfishConnector healthy(StockfishConnector engine) {
+        return engine.isAlive() ? engine : replace(engine);
+    }
+
+    private void retire(StockfishConnector engine) {
+        engine.stopEngine();
+        synchronized (engines) {
+            engines.remove(engine);
+        }
+    }
+
+    private boolean reset(StockfishConnector engine) {
+        if (!engine.isAlive()) {
+            return false;
+        }
+        try {
+            if (engine.isSearching()) {
+                engine.stop();
+            }
+            engine.sendCommand("ucinewgame");
+            engine.ready().get(RESET_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            engine.discardResponses();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // The old engine stays counted until the outcome is known, so waiting
+    // leases do not see an empty pool while the only engine restarts
+    private StockfishConnector replace(StockfishConnector engine) {
+        engine.stopEngine();
+        restarts.incrementAndGet();
+        try {
+            StockfishConnector fresh = launch();
+            synchronized (engines) {
+                engines.remove(engine);
+                engines.add(fresh);
+            }
+            return fresh;
+        } catch (IOException e) {
+            // The pool shrinks by one; once no engines are left, leases fail
+            e.printStackTrace();
+            synchronized (engines) {
+                engines.remove(engine);
+            }
+            return null;
+        }
+    }
+
+    private StockfishConnector launch() throws IOException {
+        StockfishConnector engine = factory.get();
+        if (!engine.startEngine()) {
+            throw new IOException("Failed to start engine process");
+        }
+        engine.sendCommand("uci");
+        String handshake = engine.getResponse(HANDSHAKE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (handshake == null || handshake.isEmpty()) {
+            engine.stopEngine();
+            throw new IOException(handshake == null
+                    ? "Engine did not answer uciok in " + HANDSHAKE_TIMEOUT_MILLIS + " ms"
+                    : "Engine exited during the UCI handshake");
+        }
+        if (options != null) {
+            engine.applyOptions(options);
+        }
+        try {
+            engine.ready().get(RESET_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while starting engine");
+        } catch (Exception e) {
+            engine.stopEngine();
+            throw new IOException("Engine did not answer isready", e);
+        }
+        return engine;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Engine pool is closed");
+        }
+    }
+
+    /**
+     * Exclusive use of one pooled engine until closed.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final StockfishConnector engine;
+        private boolean broken;
+        private boolean returned;
+
+        private Lease(StockfishConnector engine) {
+            this.engine = engine;
+        }
+
+        public StockfishConnector engine() {
+            return engine;
+        }
+
+        /**
+         * Marks the engine as unusable, so it is restarted instead of reset
+         * when the lease is closed.
+         */
+        public void invalidate() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (!returned) {
+                returned = true;
+                release(engine, broken);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.george.stockfish;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent scored info lines of a search, a fixed number per
+ * MultiPV slot, in preallocated ring buffers.
+ *
+ * However long the engine runs (go infinite included), the buffer holds at
+ * most slots * linesPerSlot lines and allocates nothing after construction:
+ * new lines are copied over the oldest ones. Lines without a score (currmove
+ * updates, strings) and lines for slots beyond the configured number are
+ * counted but not kept. All methods are thread-safe; the reader thread writes
+ * while any other thread reads copies.
+ */
+public class InfoBuffer {
+
+    private final SearchInfo[][] rings;
+    private final int[] next;
+    private final int[] counts;
+    private long linesSeen;
+
+    /**
+     * Creates a buffer.
+     *
+     * @param slots The number of MultiPV lines to keep, at least 1.
+     * @param linesPerSlot How many recent lines each slot remembers, at least 1.
+     */
+    public InfoBuffer(int slots, int linesPerSlot) {
+        if (slots < 1 || linesPerSlot < 1) {
+            throw new IllegalArgumentException("Slots and lines per slot must be at least 1");
+        }
+        rings = new SearchInfo[slots][linesPerSlot];
+        for (SearchInfo[] ring : rings) {
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new SearchInfo();
+            }
+        }
+        next = new int[slots];
+        counts = new int[slots];
+    }
+
+    /**
+     * Records an info line, replacing the oldest line of its slot when the
+     * slot is full.
+     *
+     * @param info The parsed line; it is copied, not kept.
+     */
+    public synchronized void add(SearchInfo info) {
+        linesSeen++;
+        int slot = info.multiPv() - 1;
+        if (!info.hasScore() || slot < 0 || slot >= rings.length) {
+            return;
+        }
+        SearchInfo[] ring = rings[slot];
+        ring[next[slot]].set(info);
+        next[slot] = (next[slot] + 1) % ring.length;
+        counts[slot] = Math.min(counts[slot] + 1, ring.length);
+    }
+
+    /**
+     * Forgets all lines, e.g. when a new search starts.
+     */
+    public synchronized void clear() {
+        for (int slot = 0; slot < rings.length; slot++) {
+            next[slot] = 0;
+            counts[slot] = 0;
+        }
+    }
+
+    /**
+     * Returns the newest line of a slot.
+     *
+     * @param multiPv The slot, 1 for the main line.
+     * @return A copy of the line, or null if the slot is empty.
+     */
+    public synchronized SearchInfo latest(int multiPv) {
+        int slot = multiPv - 1;
+        if (slot < 0 || slot >= rings.length || counts[slot] == 0) {
+            return null;
+        }
+        SearchInfo[] ring = rings[slot];
+        return ring[(next[slot] + ring.length - 1) % ring.length].copy();
+    }
+
+    /**
+     * Returns the lines a slot remembers, oldest first.
+     *
+     * @param multiPv The slot, 1 for the main line.
+     * @return Copies of the lines; empty if the slot is empty.
+     */
+    public synchronized List<SearchInfo> recent(int multiPv) {
+        int slot = multiPv - 1;
+        List<SearchInfo> lines = new ArrayList<>();
+        if (slot < 0 || slot >= rings.length) {
+            return lines;
+        }
+        SearchInfo[] ring = rings[slot];
+        int first = (next[slot] + ring.length - counts[slot]) % ring.length;
+        for (int i = 0; i < counts[slot]; i++) {
+            lines.add(ring[(first + i) % ring.length].copy());
+        }
+        return lines;
+    }
+
+    public int slots() {
+        return rings.length;
+    }
+
+    /**
+     * Returns how many info lines have been offered, kept or not.
+     *
+     * @return The number of lines since the buffer was created.
+     */
+    public synchronized long getLinesSeen() {
+        return linesSeen;
+    }
+}
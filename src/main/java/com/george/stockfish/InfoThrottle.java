@@ -0,0 +1,114 @@
+package com.george.stockfish;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * An info listener that passes on at most one line per interval, always the
+ * newest, so a user interface is not flooded by an engine that prints
+ * thousands of lines a second.
+ *
+ * Lines arriving between deliveries overwrite each other in a single pending
+ * slot. The last line of a burst is delivered once the interval has passed,
+ * so the consumer always ends up with the final state. Delivery happens on
+ * the given executor, e.g. Platform::runLater for JavaFX, with a copy the
+ * consumer may keep.
+ *
+ * Typical use:
+ * <pre>
+ *   InfoThrottle throttle = new InfoThrottle(100, Platform::runLater, this::showInfo);
+ *   engine.addInfoListener(throttle);
+ * </pre>
+ */
+public class InfoThrottle implements Consumer<SearchInfo>, AutoCloseable {
+
+    private final long intervalNanos;
+    private final Executor executor;
+    private final Consumer<SearchInfo> consumer;
+    private final ScheduledExecutorService timer;
+
+    // Guarded by this
+    private final SearchInfo pending = new SearchInfo();
+    private boolean hasPending;
+    private boolean scheduled;
+    private long lastDelivery;
+    private long delivered;
+    private long dropped;
+
+    /**
+     * Creates a throttle.
+     *
+     * @param intervalMillis The minimum time between two deliveries.
+     * @param executor Runs the consumer, e.g. on the UI thread.
+     * @param consumer Receives the throttled lines.
+     */
+    public InfoThrottle(long intervalMillis, Executor executor, Consumer<SearchInfo> consumer) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.executor = executor;
+        this.consumer = consumer;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "info-throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastDelivery = System.nanoTime() - intervalNanos;
+    }
+
+    @Override
+    public synchronized void accept(SearchInfo info) {
+        if (hasPending) {
+            dropped++;
+        }
+        pending.set(info);
+        hasPending = true;
+        if (!scheduled) {
+            scheduled = true;
+            long delay = Math.max(0, lastDelivery + intervalNanos - System.nanoTime());
+            timer.schedule(this::deliver, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns how many lines were handed to the consumer.
+     *
+     * @return The number of deliveries.
+     */
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Returns how many lines were overwritten before they could be delivered.
+     *
+     * @return The number of skipped lines.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Stops the timer; lines still pending are not delivered.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void deliver() {
+        SearchInfo info;
+        synchronized (this) {
+            scheduled = false;
+            if (!hasPending) {
+                return;
+            }
+            info = pending.copy();
+            hasPending = false;
+            lastDelivery = System.nanoTime();
+            delivered++;
+        }
+        executor.execute(() -> consumer.accept(info));
+    }
+}
@@ -0,0 +1,293 @@
+package com.george.stockfish;
+
+/**
+ * The fields of one UCI "info" line: depth, score, node counts and the
+ * principal variation.
+ *
+ * Instances are mutable so a reader can parse every line into the same
+ * object; parse() scans the line by hand (no regular expressions, no token
+ * arrays) and only the principal variation is kept as a view into the line,
+ * turned into a String when pv() is asked for it. Use copy() to keep an info
+ * beyond the callback it was delivered to.
+ */
+public class SearchInfo {
+
+    // Scores at or beyond this magnitude mean a forced mate (see centipawns())
+    public static final int MATE_SCORE = 32000;
+
+    private String line;
+    private int depth;
+    private int selDepth;
+    private int multiPv;
+    private boolean hasScore;
+    private boolean mate;
+    private int score;
+    private boolean lowerBound;
+    private boolean upperBound;
+    private long nodes;
+    private long nps;
+    private long timeMillis;
+    private int hashFull;
+    private int pvStart;
+
+    /**
+     * Parses an info line into this object, replacing its previous contents.
+     * Fields missing from the line are reset to zero (multipv to 1).
+     *
+     * @param line A line of engine output.
+     * @return True if the line was an info line, false otherwise (in which
+     * case this object is left unchanged).
+     */
+    public boolean parse(String line) {
+        if (!line.startsWith("info")) {
+            return false;
+        }
+        clear();
+        this.line = line;
+
+        int length = line.length();
+        int pos = skipSpaces(line, 4);
+        while (pos < length) {
+            // Keys are compared in place rather than cut out of the line
+            int keyStart = pos;
+            int keyEnd = tokenEnd(line, pos);
+            pos = skipSpaces(line, keyEnd);
+            int end = tokenEnd(line, pos);
+
+            if (isKey(line, keyStart, keyEnd, "depth")) {
+                depth = (int) parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "seldepth")) {
+                selDepth = (int) parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "multipv")) {
+                multiPv = (int) parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "nodes")) {
+                nodes = parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "nps")) {
+                nps = parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "time")) {
+                timeMillis = parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "hashfull")) {
+                hashFull = (int) parseLong(line, pos, end);
+            } else if (isKey(line, keyStart, keyEnd, "score")) {
+                // score (cp|mate) <n> [lowerbound|upperbound]
+                mate = isKey(line, pos, end, "mate");
+                pos = skipSpaces(line, end);
+                end = tokenEnd(line, pos);
+                score = (int) parseLong(line, pos, end);
+                hasScore = true;
+                int next = skipSpaces(line, end);
+                int nextEnd = tokenEnd(line, next);
+                if (isKey(line, next, nextEnd, "lowerbound")) {
+                    lowerBound = true;
+                    end = nextEnd;
+                } else if (isKey(line, next, nextEnd, "upperbound")) {
+                    upperBound = true;
+                    end = nextEnd;
+                }
+            } else if (isKey(line, keyStart, keyEnd, "pv")) {
+                if (pos < length) {
+                    pvStart = pos;
+                }
+                break;  // The PV runs to the end of the line
+            } else if (isKey(line, keyStart, keyEnd, "string")) {
+                break;  // Free text, nothing more to parse
+            }
+            // Unknown keys (currmove, tbhits, ...) have their single value skipped
+            pos = skipSpaces(line, end);
+        }
+        return true;
+    }
+
+    /**
+     * Copies this info into a new object, e.g. to keep it after a listener
+     * callback returns.
+     *
+     * @return An independent copy.
+     */
+    public SearchInfo copy() {
+        SearchInfo c = new SearchInfo();
+        c.set(this);
+        return c;
+    }
+
+    /**
+     * Overwrites this info with the contents of another, without allocating.
+     *
+     * @param other The info to copy from.
+     */
+    public void set(SearchInfo other) {
+        line = other.line;
+        depth = other.depth;
+        selDepth = other.selDepth;
+        multiPv = other.multiPv;
+        hasScore = other.hasScore;
+        mate = other.mate;
+        score = other.score;
+        lowerBound = other.lowerBound;
+        upperBound = other.upperBound;
+        nodes = other.nodes;
+        nps = other.nps;
+        timeMillis = other.timeMillis;
+        hashFull = other.hashFull;
+        pvStart = other.pvStart;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int selDepth() {
+        return selDepth;
+    }
+
+    public int multiPv() {
+        return multiPv;
+    }
+
+    /**
+     * Determines whether the line carried a score. Lines reporting only the
+     * current move or node counts do not.
+     *
+     * @return True if score() and isMate() are meaningful.
+     */
+    public boolean hasScore() {
+        return hasScore;
+    }
+
+    /**
+     * Determines whether the score is a mate distance rather than centipawns.
+     *
+     * @return True for "score mate N".
+     */
+    public boolean isMate() {
+        return mate;
+    }
+
+    /**
+     * Returns the score as sent: centipawns, or moves to mate if isMate() (a
+     * negative value means the side to move is being mated). Scores are from
+     * the point of view of the side to move.
+     *
+     * @return The raw score.
+     */
+    public int score() {
+        return score;
+    }
+
+    /**
+     * Returns the score in centipawns, with mates mapped to values beyond
+     * +/- (MATE_SCORE - 1000) so that shorter mates rank higher.
+     *
+     * @return The score in centipawns from the side to move's point of view.
+     */
+    public int centipawns() {
+        if (!mate) {
+            return score;
+        }
+        return score > 0 ? MATE_SCORE - score : -MATE_SCORE - score;
+    }
+
+    public boolean isLowerBound() {
+        return lowerBound;
+    }
+
+    public boolean isUpperBound() {
+        return upperBound;
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long nps() {
+        return nps;
+    }
+
+    public long timeMillis() {
+        return timeMillis;
+    }
+
+    public int hashFull() {
+        return hashFull;
+    }
+
+    /**
+     * Returns the principal variation as space-separated UCI moves.
+     *
+     * @return The PV, or an empty string if the line had none.
+     */
+    public String pv() {
+        return pvStart > 0 ? line.substring(pvStart) : "";
+    }
+
+    /**
+     * Returns the first move of the principal variation.
+     *
+     * @return The move in UCI notation, or null if the line had no PV.
+     */
+    public String firstPvMove() {
+        return pvStart > 0 ? line.substring(pvStart, tokenEnd(line, pvStart)) : null;
+    }
+
+    /**
+     * Returns the line this info was parsed from.
+     *
+     * @return The raw info line.
+     */
+    public String line() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return line;
+    }
+
+    private void clear() {
+        depth = 0;
+        selDepth = 0;
+        multiPv = 1;
+        hasScore = false;
+        mate = false;
+        score = 0;
+        lowerBound = false;
+        upperBound = false;
+        nodes = 0;
+        nps = 0;
+        timeMillis = 0;
+        hashFull = 0;
+        pvStart = 0;
+    }
+
+    private static boolean isKey(String s, int start, int end, String key) {
+        return end - start == key.length() && s.startsWith(key, start);
+    }
+
+    private static int skipSpaces(String s, int pos) {
+        while (pos < s.length() && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(String s, int pos) {
+        while (pos < s.length() && s.charAt(pos) != ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Parses a signed decimal number between two indices without allocating
+    private static long parseLong(String s, int start, int end) {
+        boolean negative = start < end && s.charAt(start) == '-';
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+}
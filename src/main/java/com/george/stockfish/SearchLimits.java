@@ -0,0 +1,116 @@
+package com.george.stockfish;
+
+/**
+ * The limits of one search, i.e. the arguments of the UCI "go" command. A
+ * value of zero means the limit is not set; a search without any limit runs
+ * until it is stopped.
+ *
+ * @param moveTime Time for this move in milliseconds.
+ * @param depth Maximum depth in plies.
+ * @param nodes Maximum number of nodes.
+ * @param mate Search for a mate in this many moves.
+ * @param whiteTime White's remaining clock time in milliseconds.
+ * @param blackTime Black's remaining clock time in milliseconds.
+ * @param whiteIncrement White's increment per move in milliseconds.
+ * @param blackIncrement Black's increment per move in milliseconds.
+ * @param movesToGo Moves until the next time control, or 0 for sudden death.
+ */
+public record SearchLimits(long moveTime, int depth, long nodes, int mate,
+        long whiteTime, long blackTime, long whiteIncrement, long blackIncrement, int movesToGo) {
+
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(millis, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public static SearchLimits depth(int plies) {
+        return new SearchLimits(0, plies, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, 0, nodes, 0, 0, 0, 0, 0, 0);
+    }
+
+    public static SearchLimits mate(int moves) {
+        return new SearchLimits(0, 0, 0, moves, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates clock-based limits, leaving the engine (or a TimeManager) to
+     * decide how long to think.
+     *
+     * @param whiteTime White's remaining time in milliseconds.
+     * @param blackTime Black's remaining time in milliseconds.
+     * @param whiteIncrement White's increment in milliseconds.
+     * @param blackIncrement Black's increment in milliseconds.
+     * @param movesToGo Moves until the next time control, or 0.
+     * @return The limits.
+     */
+    public static SearchLimits clock(long whiteTime, long blackTime,
+            long whiteIncrement, long blackIncrement, int movesToGo) {
+        return new SearchLimits(0, 0, 0, 0, whiteTime, blackTime, whiteIncrement, blackIncrement, movesToGo);
+    }
+
+    /**
+     * Returns a copy with the given move time and every other limit kept.
+     *
+     * @param millis The move time in milliseconds.
+     * @return The new limits.
+     */
+    public SearchLimits withMoveTime(long millis) {
+        return new SearchLimits(millis, depth, nodes, mate, whiteTime, blackTime,
+                whiteIncrement, blackIncrement, movesToGo);
+    }
+
+    public SearchLimits withDepth(int plies) {
+        return new SearchLimits(moveTime, plies, nodes, mate, whiteTime, blackTime,
+                whiteIncrement, blackIncrement, movesToGo);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(moveTime, depth, nodes, mate, whiteTime, blackTime,
+                whiteIncrement, blackIncrement, movesToGo);
+    }
+
+    /**
+     * Determines whether the limits include a clock for either side.
+     *
+     * @return True if wtime or btime is set.
+     */
+    public boolean hasClock() {
+        return whiteTime > 0 || blackTime > 0;
+    }
+
+    /**
+     * Returns the limits as arguments for "go", e.g. "wtime 60000 btime 60000
+     * winc 1000 binc 1000".
+     *
+     * @return The arguments, or an empty string if no limit is set.
+     */
+    public String toGoArguments() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, "wtime", whiteTime);
+        append(sb, "btime", blackTime);
+        append(sb, "winc", whiteIncrement);
+        append(sb, "binc", blackIncrement);
+        append(sb, "movestogo", movesToGo);
+        append(sb, "movetime", moveTime);
+        append(sb, "depth", depth);
+        append(sb, "nodes", nodes);
+        append(sb, "mate", mate);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toGoArguments();
+    }
+
+    private static void append(StringBuilder sb, String name, long value) {
+        if (value > 0) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(name).append(' ').append(value);
+        }
+    }
+}
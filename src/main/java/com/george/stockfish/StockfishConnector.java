@@ -1,19 +1,130 @@
 package com.george.stockfish;
 
 import java.io.*;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+/**
+ * Talks UCI to an engine process over its standard input and output.
+ *
+ * A dedicated daemon thread reads everything the engine prints, so the engine
+ * never stalls on a full pipe and callers never block on readLine. Each line
+ * is turned into an EngineEvent and passed to the registered listeners. The
+ * asynchronous API (search, ready) returns futures that the reader thread
+ * completes when the matching bestmove or readyok arrives. The blocking
+ * getResponse and getBestMove methods are still available and receive every
+ * other terminal reply, including those to go and isready commands sent
+ * through sendCommand. Replies are matched to commands in the order the
+ * commands were sent, so mixing the two APIs never hands one caller's reply to
+ * the other.
+ *
+ * Info lines are never queued: each is parsed, passed to the info listeners
+ * and kept in a bounded InfoBuffer, so even go infinite runs at full engine
+ * speed in constant memory whether or not anyone reads the output. Replies
+ * for the blocking API therefore leave out info lines.
+ */
 public class StockfishConnector {
 
+    // Marks the end of the engine's output in the response queue
+    private static final String END_OF_OUTPUT = "";
+
     private Process stockfish;
     private BufferedReader input;
     private BufferedWriter output;
-    private static final String ENGINE_SOURCE = "stockfish/stockfish-windows-x86-64-avx2";
+    private Thread reader;
+    private volatile boolean stopped;
+
+    // Listeners called on the reader thread for every line of output
+    private final List<Consumer<EngineEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<SearchInfo>> infoListeners = new CopyOnWriteArrayList<>();
+
+    // Reader-thread state: every info line is parsed into the same object, and
+    // the last scored one of the main variation is kept for the search result
+    private final SearchInfo info = new SearchInfo();
+    private final SearchInfo lastScoredInfo = new SearchInfo();
+    private boolean hasLastScoredInfo;
+
+    // The latest info lines per MultiPV slot, cleared by every go command
+    private static final int INFO_SLOTS = 8;
+    private static final int INFO_LINES_PER_SLOT = 16;
+    private final InfoBuffer infoBuffer = new InfoBuffer(INFO_SLOTS, INFO_LINES_PER_SLOT);
+
+    // The search started with search(), completed by the next bestmove
+    private final AtomicReference<CompletableFuture<BestMove>> pendingSearch = new AtomicReference<>();
+
+    // Who each expected bestmove and readyok belongs to, in the order the go
+    // and isready commands were sent (the engine answers in that order): a
+    // future from search() or ready(), or RAW for a command sent through
+    // sendCommand, whose reply goes to the blocking API
+    private static final CompletableFuture<BestMove> RAW_SEARCH = new CompletableFuture<>();
+    private static final CompletableFuture<Void> RAW_READY = new CompletableFuture<>();
+    private final ConcurrentLinkedQueue<CompletableFuture<BestMove>> pendingBestMoves = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> pendingReady = new ConcurrentLinkedQueue<>();
+
+    // Replies (ending in uciok, readyok or bestmove) for the blocking API
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    // Set once the reader thread has seen the end of the engine's output
+    private volatile boolean outputEnded;
+
+    // Lines since the last terminal reply, collected for the blocking API
+    private final StringBuilder transcript = new StringBuilder();
+
+    // Command line used to launch the engine process
+    private final String[] command;
+
+    // The last position command sent, i.e. the position the engine holds
+    private String enginePosition;
+
+    // Traffic counters for the commands sent and the searches run
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong commandsSent = new AtomicLong();
+    private final AtomicLong positionsSkipped = new AtomicLong();
+    private final AtomicLong sendNanos = new AtomicLong();
+    private final AtomicLong searchCount = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private volatile long searchStartNanos;
+
+    /**
+     * Creates a connector for the Stockfish binary found for this platform
+     * (see EngineOptions.defaultEnginePath()).
+     */
+    public StockfishConnector() {
+        this(EngineOptions.defaultEnginePath());
+    }
+
+    /**
+     * Creates a connector for any UCI engine.
+     *
+     * @param command The executable and its arguments.
+     */
+    public StockfishConnector(String... command) {
+        this.command = command.clone();
+    }
 
     public boolean startEngine() {
         try {
-            stockfish = new ProcessBuilder(ENGINE_SOURCE).start();
+            stockfish = new ProcessBuilder(command).start();
+            synchronized (this) {
+                enginePosition = null;
+            }
+            outputEnded = false;
+            pendingBestMoves.clear();
+            pendingReady.clear();
             input = new BufferedReader(new InputStreamReader(stockfish.getInputStream()));
             output = new BufferedWriter(new OutputStreamWriter(stockfish.getOutputStream()));
+            reader = new Thread(this::readLoop, "engine-reader");
+            reader.setDaemon(true);
+            reader.start();
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -21,47 +132,409 @@ public class StockfishConnector {
         }
     }
 
+    /**
+     * Sends a command to the engine. The bestmove answering a "go" sent this
+     * way, and the readyok answering an "isready", go to the blocking API
+     * (getResponse(), getBestMove()) and never complete a future from
+     * search() or ready().
+     *
+     * @param command The UCI command, without a line break.
+     * @throws IOException If the command cannot be sent.
+     */
     public void sendCommand(String command) throws IOException {
-        output.write(command + "\n");
-        output.flush();
+        if (command.equals("go") || command.startsWith("go ")) {
+            sendExpecting(command, pendingBestMoves, RAW_SEARCH);
+        } else if (command.equals("isready")) {
+            sendExpecting(command, pendingReady, RAW_READY);
+        } else {
+            write(command);
+        }
     }
 
-    public String getResponse() throws IOException {
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = input.readLine()) != null) {
-            sb.append(line).append("\n");
-            if (line.equals("uciok") || line.startsWith("bestmove") || line.equals("readyok")) {
-                break;
+    // Sends a command and records who owns its reply, atomically, so owners
+    // are queued in the order the engine will answer
+    private <T> void sendExpecting(String command, Queue<CompletableFuture<T>> owners,
+            CompletableFuture<T> owner) throws IOException {
+        synchronized (this) {
+            owners.add(owner);
+            try {
+                write(command);
+            } catch (IOException e) {
+                owners.remove(owner);
+                throw e;
             }
         }
-        return sb.toString();
     }
 
+    private void write(String command) throws IOException {
+        synchronized (this) {
+            long start = System.nanoTime();
+            output.write(command + "\n");
+            output.flush();
+            sendNanos.addAndGet(System.nanoTime() - start);
+            bytesSent.addAndGet(command.length() + 1);
+            commandsSent.incrementAndGet();
+
+            if (command.startsWith("go")) {
+                infoBuffer.clear();
+            } else if (command.startsWith("position ")) {
+                enginePosition = command;
+            } else if (command.equals("ucinewgame")) {
+                enginePosition = null;  // Engines may reset their position here
+            }
+        }
+    }
+
+    /**
+     * Sends a position command unless the engine already holds exactly that
+     * position, e.g. because nothing has been played since the last search.
+     *
+     * @param positionCommand The full command, starting with "position".
+     * @return True if the command was sent, false if it was skipped.
+     * @throws IOException If the command cannot be sent.
+     */
+    private boolean sendPosition(String positionCommand) throws IOException {
+        synchronized (this) {
+            if (positionCommand.equals(enginePosition)) {
+                positionsSkipped.incrementAndGet();
+                return false;
+            }
+            write(positionCommand);
+            return true;
+        }
+    }
+
+    /**
+     * Blocks until the next reply ending in uciok, readyok or bestmove that no
+     * future was waiting for, and returns all of its lines.
+     *
+     * @return The reply, one line per row, or an empty string once the engine
+     * has exited.
+     * @throws IOException If the calling thread is interrupted while waiting.
+     */
+    public String getResponse() throws IOException {
+        try {
+            return endAware(responses.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the engine");
+        }
+    }
+
+    /**
+     * Waits up to a time limit for the next reply ending in uciok, readyok or
+     * bestmove that no future was waiting for, and returns all of its lines.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit The unit of the timeout.
+     * @return The reply, one line per row, an empty string once the engine
+     * has exited, or null if no reply came in time.
+     * @throws IOException If the calling thread is interrupted while waiting.
+     */
+    public String getResponse(long timeout, TimeUnit unit) throws IOException {
+        try {
+            String response = responses.poll(timeout, unit);
+            return response == null ? null : endAware(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the engine");
+        }
+    }
+
+    /**
+     * Blocks until the engine replies with bestmove to a go command sent with
+     * sendCommand, skipping any other replies.
+     *
+     * @return The best move in UCI notation, or null if the engine exited.
+     * @throws IOException If the calling thread is interrupted while waiting.
+     */
     public String getBestMove() throws IOException {
-        String bestMove = null;
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = input.readLine()) != null) {
-            sb.append(line).append("\n");
-            if (line.startsWith("bestmove")) {
-                String[] parts = line.split(" ");
-                bestMove = parts[1];
-                break;
+        while (true) {
+            String response = getResponse();
+            if (response.isEmpty()) {
+                return null;
+            }
+            int start = response.lastIndexOf("bestmove");
+            if (start >= 0) {
+                return BestMove.parse(response.substring(start)).move();
             }
         }
-        return bestMove;
+    }
+
+    /**
+     * Starts a search and returns a future completed with its result. Only one
+     * search can run at a time; the future completes when the engine sends
+     * bestmove, including after stop() or, for a ponder search, ponderHit().
+     *
+     * @param goArguments Everything after "go", e.g. "movetime 1000",
+     * "ponder wtime 60000 btime 60000" or "infinite".
+     * @return A future for the engine's best move.
+     * @throws IOException If the command cannot be sent.
+     * @throws IllegalStateException If a search is already running.
+     */
+    public CompletableFuture<BestMove> search(String goArguments) throws IOException {
+        CompletableFuture<BestMove> future = new CompletableFuture<>();
+        if (!pendingSearch.compareAndSet(null, future)) {
+            throw new IllegalStateException("A search is already running");
+        }
+        try {
+            searchStartNanos = System.nanoTime();
+            sendExpecting(goArguments.isEmpty() ? "go" : "go " + goArguments, pendingBestMoves, future);
+        } catch (IOException e) {
+            pendingSearch.compareAndSet(future, null);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Starts a search with the given limits; see search(String).
+     *
+     * @param limits The limits of the search.
+     * @return A future for the engine's best move.
+     * @throws IOException If the command cannot be sent.
+     * @throws IllegalStateException If a search is already running.
+     */
+    public CompletableFuture<BestMove> search(SearchLimits limits) throws IOException {
+        return search(limits.toGoArguments());
+    }
+
+    /**
+     * Asks the engine to stop the running search. The search's future is
+     * completed with the best move found so far.
+     *
+     * @throws IOException If the command cannot be sent.
+     */
+    public void stop() throws IOException {
+        sendCommand("stop");
+    }
+
+    /**
+     * Tells the engine that the opponent played the expected move, turning a
+     * "go ponder" search into a normal one.
+     *
+     * @throws IOException If the command cannot be sent.
+     */
+    public void ponderHit() throws IOException {
+        sendCommand("ponderhit");
+    }
+
+    /**
+     * Sends isready and returns a future completed when the engine answers
+     * readyok, i.e. once it has processed every earlier command.
+     *
+     * @return A future completed by the matching readyok.
+     * @throws IOException If the command cannot be sent.
+     */
+    public CompletableFuture<Void> ready() throws IOException {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        sendExpecting("isready", pendingReady, future);
+        return future;
+    }
+
+    /**
+     * Determines whether a search started with search() is still running.
+     *
+     * @return True if its future has not completed yet.
+     */
+    public boolean isSearching() {
+        return pendingSearch.get() != null;
+    }
+
+    /**
+     * Registers a listener for every line of engine output. Listeners run on
+     * the reader thread, so they must return quickly and must not call back
+     * into blocking methods of this connector.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(Consumer<EngineEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<EngineEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registers a listener for parsed info lines. The same SearchInfo object is
+     * reused for every line, so a listener that wants to keep one must copy()
+     * it. Like event listeners, these run on the reader thread.
+     *
+     * @param listener The listener to add.
+     */
+    public void addInfoListener(Consumer<SearchInfo> listener) {
+        infoListeners.add(listener);
+    }
+
+    public void removeInfoListener(Consumer<SearchInfo> listener) {
+        infoListeners.remove(listener);
+    }
+
+    /**
+     * Returns the buffer holding the latest info lines of the current or last
+     * search, per MultiPV slot.
+     *
+     * @return The info buffer of this connector.
+     */
+    public InfoBuffer getInfoBuffer() {
+        return infoBuffer;
+    }
+
+    /**
+     * Sends a setoption command for every option that is set. Call it after
+     * the uci handshake and before isready, which waits for the engine to
+     * finish resizing its hash and threads.
+     *
+     * @param options The options to apply.
+     * @throws IOException If a command cannot be sent.
+     */
+    public void applyOptions(EngineOptions options) throws IOException {
+        for (String command : options.toCommands()) {
+            sendCommand(command);
+        }
+    }
+
+    /**
+     * Drops any replies queued for the blocking API that nobody has read,
+     * so the next user of this connector does not see stale output.
+     */
+    void discardResponses() {
+        responses.clear();
+        if (outputEnded) {
+            responses.add(END_OF_OUTPUT);
+        }
+    }
+
+    // Puts the end marker back, so every later call sees the exit too
+    private String endAware(String response) {
+        if (response.isEmpty()) {
+            responses.add(END_OF_OUTPUT);
+        }
+        return response;
+    }
+
+    /**
+     * Determines whether the engine process is running.
+     *
+     * @return True if the process was started and has not exited.
+     */
+    public boolean isAlive() {
+        return stockfish != null && stockfish.isAlive();
     }
 
     public void stopEngine() {
+        if (stockfish == null || stopped) {
+            return;
+        }
+        stopped = true;
         try {
-            sendCommand("quit");
-            stockfish.destroy();
+            if (stockfish.isAlive()) {
+                sendCommand("quit");
+            }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            stockfish.destroy();
+        }
+    }
+
+    // Runs on the reader thread until the engine closes its output
+    private void readLoop() {
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                dispatch(EngineEvent.parse(line));
+            }
+        } catch (IOException e) {
+            // The stream was closed underneath us; treat it like the end of output
+        } finally {
+            IOException closed = new IOException("Engine process has exited");
+            pendingSearch.set(null);
+            CompletableFuture<BestMove> search;
+            while ((search = pendingBestMoves.poll()) != null) {
+                if (search != RAW_SEARCH) {
+                    search.completeExceptionally(closed);
+                }
+            }
+            CompletableFuture<Void> ready;
+            while ((ready = pendingReady.poll()) != null) {
+                if (ready != RAW_READY) {
+                    ready.completeExceptionally(closed);
+                }
+            }
+            outputEnded = true;
+            responses.add(END_OF_OUTPUT);
+        }
+    }
+
+    private void dispatch(EngineEvent event) {
+        for (Consumer<EngineEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();  // A broken listener must not stop the reader
+            }
+        }
+
+        switch (event.getType()) {
+            case BEST_MOVE -> {
+                CompletableFuture<BestMove> search = pendingBestMoves.poll();
+                if (search != null && search != RAW_SEARCH) {
+                    pendingSearch.compareAndSet(search, null);
+                    searchNanos.addAndGet(System.nanoTime() - searchStartNanos);
+                    searchCount.incrementAndGet();
+                    transcript.setLength(0);
+                    SearchInfo last = hasLastScoredInfo ? lastScoredInfo.copy() : null;
+                    hasLastScoredInfo = false;
+                    search.complete(BestMove.parse(event.getLine(), last));
+                } else {
+                    respond(event.getLine());
+                }
+            }
+            case READY_OK -> {
+                CompletableFuture<Void> ready = pendingReady.poll();
+                if (ready != null && ready != RAW_READY) {
+                    ready.complete(null);
+                } else {
+                    respond(event.getLine());
+                }
+            }
+            case UCI_OK -> respond(event.getLine());
+            case INFO -> {
+                info.parse(event.getLine());
+                for (Consumer<SearchInfo> listener : infoListeners) {
+                    try {
+                        listener.accept(info);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                infoBuffer.add(info);
+                if (pendingSearch.get() != null && info.hasScore() && info.multiPv() == 1) {
+                    // Bounds from an aspiration window are not a final score
+                    if (!hasLastScoredInfo || !(info.isLowerBound() || info.isUpperBound())) {
+                        lastScoredInfo.set(info);
+                        hasLastScoredInfo = true;
+                    }
+                }
+            }
+            default -> {
+                // Only keep lines for the blocking API while no async search owns them
+                if (pendingSearch.get() == null) {
+                    transcript.append(event.getLine()).append('\n');
+                }
+            }
         }
     }
 
+    // Completes a reply for the blocking API
+    private void respond(String line) {
+        transcript.append(line).append('\n');
+        responses.add(transcript.toString());
+        transcript.setLength(0);
+    }
+
     /**
      * Sends the current game state with the provided move history to Stockfish.
      *
@@ -70,12 +543,87 @@ public class StockfishConnector {
      */
     public void updateGameState(String moveHistory) throws IOException {
         if (moveHistory == null || moveHistory.isEmpty()) {
-            sendCommand("position startpos");
+            sendPosition("position startpos");
         } else {
-            sendCommand("position startpos moves " + moveHistory);
+            sendPosition("position startpos moves " + moveHistory);
         }
     }
 
+    /**
+     * Sends a position to Stockfish as a FEN string. Unlike updateGameState,
+     * the command has the same size however long the game has been running.
+     * Nothing is sent if the engine already has this position.
+     *
+     * @param fen The position in Forsyth-Edwards Notation.
+     * @throws IOException If an error occurs while sending the command.
+     */
+    public void setPosition(String fen) throws IOException {
+        sendPosition("position fen " + fen);
+    }
+
+    /**
+     * Sends a position as a FEN string followed by moves played from it.
+     * Passing the position after the last capture or pawn move together with
+     * the moves since keeps the command short (at most a hundred plies) while
+     * still letting the engine detect repetitions. Nothing is sent if the
+     * engine already has this position.
+     *
+     * @param fen The position the moves start from.
+     * @param moves The moves played since, in UCI notation.
+     * @return True if a command was sent, false if it was skipped.
+     * @throws IOException If an error occurs while sending the command.
+     */
+    public boolean setPosition(String fen, List<String> moves) throws IOException {
+        if (moves.isEmpty()) {
+            return sendPosition("position fen " + fen);
+        }
+        return sendPosition("position fen " + fen + " moves " + String.join(" ", moves));
+    }
+
+    /**
+     * Returns the number of bytes written to the engine, including newlines.
+     *
+     * @return The byte count since this connector was created.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getCommandsSent() {
+        return commandsSent.get();
+    }
+
+    /**
+     * Returns how many position commands were not sent because the engine
+     * already had the position.
+     *
+     * @return The number of skipped position commands.
+     */
+    public long getSkippedPositionCount() {
+        return positionsSkipped.get();
+    }
+
+    /**
+     * Returns the mean time spent writing and flushing one command.
+     *
+     * @return The average send latency in microseconds.
+     */
+    public double getAverageSendMicros() {
+        long count = commandsSent.get();
+        return count == 0 ? 0 : sendNanos.get() / 1000.0 / count;
+    }
+
+    /**
+     * Returns the mean time from sending go to receiving bestmove for searches
+     * started with search().
+     *
+     * @return The average search latency in milliseconds.
+     */
+    public double getAverageSearchMillis() {
+        long count = searchCount.get();
+        return count == 0 ? 0 : searchNanos.get() / 1_000_000.0 / count;
+    }
+
     /**
      * Sends a command to Stockfish to prepare for the next move calculation.
      *
@@ -83,6 +631,18 @@ public class StockfishConnector {
      * @throws IOException If an error occurs while sending the command.
      */
     public void calculateBestMove(int timeLimitMillis) throws IOException {
-        sendCommand("go movetime " + timeLimitMillis);
+        calculateBestMove(SearchLimits.moveTime(timeLimitMillis));
+    }
+
+    /**
+     * Sends a go command with any combination of limits: a clock, a move
+     * time, a depth, a node count or a mate search.
+     *
+     * @param limits The limits of the search.
+     * @throws IOException If an error occurs while sending the command.
+     */
+    public void calculateBestMove(SearchLimits limits) throws IOException {
+        String arguments = limits.toGoArguments();
+        sendCommand(arguments.isEmpty() ? "go" : "go " + arguments);
     }
 }
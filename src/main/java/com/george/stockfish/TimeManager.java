@@ -0,0 +1,136 @@
+package com.george.stockfish;
+
+import com.george.board.PieceSquareTables;
+
+/**
+ * Turns clock-based search limits into a fixed time for the current move.
+ *
+ * The base share is the remaining time divided by the moves expected until
+ * the next time control, plus most of the increment. It is then scaled by the
+ * game phase (less in the opening, more in the middlegame) and by how complex
+ * the position looks (fewer replies need less time; a single legal move gets
+ * almost none). The result is capped so one move never takes more than a
+ * fraction of the remaining clock, even when that is below the usual minimum
+ * move time.
+ *
+ * The manager also records the time each move actually used against the time
+ * it was given, so over- and undershooting can be measured. A TimeManager is
+ * meant for one game and is not thread-safe.
+ */
+public class TimeManager {
+
+    // Moves assumed left in a sudden-death game
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    // Never plan to use more than this share of the remaining time on one move
+    private static final double MAX_SHARE = 0.4;
+
+    // Kept in reserve for communication with the engine and the GUI
+    private static final long OVERHEAD_MILLIS = 50;
+    private static final long MIN_MOVE_MILLIS = 20;
+
+    private int moves;
+    private long allottedMillis;
+    private long usedMillis;
+    private long maxOverrunMillis;
+    private long lastAllotted;
+    private long lastUsed;
+
+    /**
+     * Computes the limits for the move about to be searched. Limits without
+     * a clock are returned unchanged; otherwise the clock is replaced by a
+     * movetime, keeping any depth, nodes or mate limit.
+     *
+     * @param limits The limits, typically with wtime/btime set.
+     * @param whiteToMove True if White is to move.
+     * @param phase The game phase from 0 (bare kings and pawns) to
+     * PieceSquareTables.MAX_PHASE, as returned by ChessBoard.gamePhase().
+     * @param legalMoves The number of legal moves, or -1 if unknown.
+     * @param inCheck True if the side to move is in check.
+     * @return The limits to send with "go".
+     */
+    public SearchLimits allot(SearchLimits limits, boolean whiteToMove, int phase, int legalMoves, boolean inCheck) {
+        if (!limits.hasClock()) {
+            return limits;
+        }
+        long remaining = whiteToMove ? limits.whiteTime() : limits.blackTime();
+        long increment = whiteToMove ? limits.whiteIncrement() : limits.blackIncrement();
+        int movesToGo = limits.movesToGo() > 0 ? limits.movesToGo() : DEFAULT_MOVES_TO_GO;
+
+        double budget = (double) remaining / movesToGo + increment * 0.75;
+        budget *= phaseFactor(phase) * complexityFactor(legalMoves, inCheck);
+
+        long cap = (long) (remaining * MAX_SHARE) - OVERHEAD_MILLIS;
+        long millis = Math.max(MIN_MOVE_MILLIS, Math.min((long) budget, cap));
+        // With almost nothing left, even the minimum would lose on time
+        millis = Math.min(millis, Math.max(1, (long) (remaining * MAX_SHARE)));
+        return new SearchLimits(millis, limits.depth(), limits.nodes(), limits.mate(), 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Records how long a move actually took.
+     *
+     * @param allotted The move time that was given, in milliseconds.
+     * @param used The time the search really took, in milliseconds.
+     */
+    public void record(long allotted, long used) {
+        moves++;
+        allottedMillis += allotted;
+        usedMillis += used;
+        maxOverrunMillis = Math.max(maxOverrunMillis, used - allotted);
+        lastAllotted = allotted;
+        lastUsed = used;
+    }
+
+    public int getMoveCount() {
+        return moves;
+    }
+
+    public long getAllottedMillis() {
+        return allottedMillis;
+    }
+
+    public long getUsedMillis() {
+        return usedMillis;
+    }
+
+    public long getLastAllottedMillis() {
+        return lastAllotted;
+    }
+
+    public long getLastUsedMillis() {
+        return lastUsed;
+    }
+
+    /**
+     * Returns the largest amount by which a move exceeded its time.
+     *
+     * @return The worst overrun in milliseconds, or 0 if no move overran.
+     */
+    public long getMaxOverrunMillis() {
+        return maxOverrunMillis;
+    }
+
+    // Opening moves are mostly known territory; the middlegame decides games
+    private static double phaseFactor(int phase) {
+        if (phase >= PieceSquareTables.MAX_PHASE - 2) {
+            return 0.6;
+        }
+        if (phase >= 10) {
+            return 1.2;
+        }
+        return 0.9;
+    }
+
+    // Positions with few replies need less time; a forced move needs none
+    private static double complexityFactor(int legalMoves, boolean inCheck) {
+        if (legalMoves == 1) {
+            return 0.05;
+        }
+        if (legalMoves < 0) {
+            return 1.0;
+        }
+        double factor = Math.min(1.4, Math.max(0.6, legalMoves / 30.0));
+        return inCheck ? factor * 0.8 : factor;
+    }
+}
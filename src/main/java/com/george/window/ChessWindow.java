@@ -54,6 +54,10 @@ import java.util.logging.Logger;
  * The chessboard is represented as an 8x8 grid, and piece images are loaded
  * dynamically based on their positions on the board. The class manages both
  * the internal game state and the visual representation.
+ *
+ * All state, including the drag state, belongs to the window instance and is
+ * only touched on the JavaFX application thread, so several windows (and
+ * their boards) can exist side by side.
  */
 public class ChessWindow extends Application {
 
@@ -265,15 +269,13 @@ public class ChessWindow extends Application {
      */
     public void movePiece(String move) throws Exception {
         if (move.equals("0-0")) {  // Kingside castling
-            // Move the white king and rook for kingside castling
+            // The board moves the rook along with the king
             chessBoard.movePiece(7, 4, 7, 6);  // King from e1 to g1
-            chessBoard.movePiece(7, 7, 7, 5);  // Rook from h1 to f1
             displayChessPieces(-1, -1);  // Redraw all pieces
             System.out.println("Kingside castling for white.");
         } else if (move.equals("0-0-0")) {  // Queenside castling
-            // Move the white king and rook for queenside castling
+            // The board moves the rook along with the king
             chessBoard.movePiece(7, 4, 7, 2);  // King from e1 to c1
-            chessBoard.movePiece(7, 0, 7, 3);  // Rook from a1 to d1
             displayChessPieces(-1, -1);  // Redraw all pieces
             System.out.println("Queenside castling for white.");
         } else {
@@ -351,27 +353,27 @@ public class ChessWindow extends Application {
     /*
      * I will set this to true as I drag the mouse.
      */
-    private static boolean moving = false;
+    private boolean moving = false;
 
     /**
      * The coordinate where the piece begins (x-coordinate).
      */
-    private static int startX = 8;
+    private int startX = 8;
 
     /**
      * The coordinate where the piece begins (y-coordinate).
      */
-    private static int startY = 8;
+    private int startY = 8;
 
     /**
      * The coordinate where the piece ends (x-coordinate).
      */
-    private static int endX = 8;
+    private int endX = 8;
 
     /**
      * The coordinate where the piece ends (y-coordinate).
      */
-    private static int endY = 8;
+    private int endY = 8;
 
     /**
      * Handles the mouse press event on the chessboard to initiate piece
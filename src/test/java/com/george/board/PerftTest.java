@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2024 
+ * George Miller
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * ----------------------------------------------------------------------------
+ *
+ * Class: PerftTest
+ *
+ * Checks the move generator against the published perft node counts of the
+ * standard reference positions, at depths shallow enough for every build.
+ * Deeper runs are left to PerftMain (perft, divide and suite).
+ */
+package com.george.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class PerftTest {
+
+    static Stream<Arguments> referencePositions() {
+        return Stream.of(
+                Arguments.of("start", ChessBoard.START_FEN, 4, 197281L),
+                Arguments.of("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                        3, 97862L),
+                Arguments.of("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4, 43238L),
+                Arguments.of("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                        3, 9467L),
+                Arguments.of("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3, 62379L),
+                Arguments.of("position 6",
+                        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 3, 89890L));
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @MethodSource("referencePositions")
+    void nodeCountMatchesReference(String name, String fen, int depth, long expected) {
+        ChessBoard board = ChessBoard.fromFen(fen);
+        assertEquals(expected, new Perft(board).perft(depth), name);
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @MethodSource("referencePositions")
+    void perftLeavesTheBoardUnchanged(String name, String fen, int depth, long expected) {
+        ChessBoard board = ChessBoard.fromFen(fen);
+        long hash = board.hash();
+        new Perft(board).perft(depth);
+        assertEquals(fen, board.toFen(), name);
+        assertEquals(hash, board.hash(), name);
+    }
+}